@@ -0,0 +1,84 @@
+#!/bin/bash
+
+# Redirect Connection Pool Benchmark
+# Drives GET /{shortCode} with parallel curl clients while sampling the JDBC
+# pool gauges (database_pools) from /api/debug/metrics, and reports the peak
+# number of active connections and of threads waiting for one. Cache hits
+# should hold no connection at all; only local-cache/Redis misses borrow one
+# for a single read-only query.
+#
+# Usage: ./benchmark-redirect-db-pool.sh <shortCode> [requests] [clients]
+# Env:   BASE_URL (http://localhost:8080), SAMPLE_INTERVAL (0.1)
+#
+# The redirect endpoint is rate limited per IP, so part of a long run is
+# answered with 429; those requests do not touch the database either.
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+SAMPLE_INTERVAL="${SAMPLE_INTERVAL:-0.1}"
+SHORT_CODE="$1"
+REQUESTS="${2:-5000}"
+CLIENTS="${3:-50}"
+METRICS_URL="$BASE_URL/api/debug/metrics"
+SAMPLES_FILE=$(mktemp)
+STATUS_FILE=$(mktemp)
+
+if [ -z "$SHORT_CODE" ]; then
+    echo "Usage: $0 <shortCode> [requests] [clients]"
+    exit 1
+fi
+
+if ! command -v jq &> /dev/null; then
+    echo "❌ jq not found. Install jq first."
+    exit 1
+fi
+
+if ! curl -sf "$METRICS_URL" > /dev/null; then
+    echo "❌ Application is not reachable at $BASE_URL"
+    exit 1
+fi
+
+echo "========================================"
+echo "⏱  REDIRECT CONNECTION POOL BENCHMARK"
+echo "========================================"
+echo "Target: $BASE_URL/$SHORT_CODE"
+echo "Requests: $REQUESTS, clients: $CLIENTS"
+echo ""
+
+# Sum active / awaiting over every pool (primary and replica when configured)
+sample_pools() {
+    while true; do
+        curl -s "$METRICS_URL" | jq -r '[.database_pools[] | select(.active != null)]
+            | "\(map(.active) | add // 0) \(map(.threads_awaiting) | add // 0)"' >> "$SAMPLES_FILE"
+        sleep "$SAMPLE_INTERVAL"
+    done
+}
+
+loads_before=$(curl -s "$METRICS_URL" | jq '.url_database_loads.loads')
+
+sample_pools &
+SAMPLER_PID=$!
+
+start=$(date +%s.%N)
+seq "$REQUESTS" | xargs -P "$CLIENTS" -I{} \
+    curl -s -o /dev/null -w "%{http_code}\n" "$BASE_URL/$SHORT_CODE" >> "$STATUS_FILE"
+end=$(date +%s.%N)
+
+kill "$SAMPLER_PID" 2> /dev/null
+wait "$SAMPLER_PID" 2> /dev/null
+
+loads_after=$(curl -s "$METRICS_URL" | jq '.url_database_loads.loads')
+duration=$(echo "$end - $start" | bc)
+
+echo "📊 Responses:"
+sort "$STATUS_FILE" | uniq -c | awk '{ printf "   %s x %s\n", $2, $1 }'
+echo ""
+echo "   duration: ${duration}s, $(echo "scale=1; $REQUESTS / $duration" | bc) req/s"
+echo "   database loads during run: $((loads_after - loads_before))"
+echo "   pool samples: $(wc -l < "$SAMPLES_FILE")"
+echo "   peak active connections: $(sort -n -k1 "$SAMPLES_FILE" | tail -1 | cut -d' ' -f1)"
+echo "   peak threads awaiting a connection: $(sort -n -k2 "$SAMPLES_FILE" | tail -1 | cut -d' ' -f2)"
+echo "   mean active connections: $(awk '{ sum += $1 } END { if (NR) printf "%.2f", sum / NR; else print 0 }' "$SAMPLES_FILE")"
+
+rm -f "$SAMPLES_FILE" "$STATUS_FILE"
+echo ""
+echo "✅ Done. Samples include the metrics request itself, which holds no connection."
@@ -0,0 +1,84 @@
+#!/bin/bash
+
+# Redirect Latency Load Test
+# Sends GET /{shortCode} from parallel curl clients and reports latency
+# percentiles per response status. Run it once against the application
+# started with SECURITY_PUBLIC_FAST_PATH_ENABLED=false (redirects go through
+# the JWT filter and the Spring Security chain) and once with the default
+# (fast path on) to compare. With the fast path off, redirects are still
+# permitted for anonymous clients, just through the full chain.
+#
+# Usage: ./loadtest-redirect-latency.sh <shortCode> [requests] [clients]
+# Env:   BASE_URL (http://localhost:8080)
+#        ACCESS_TOKEN  sent as the access_token cookie, like a logged-in
+#                      browser following a short link (token verification
+#                      is the part the fast path skips)
+#
+# The redirect endpoint is rate limited per IP, so long runs also get 429s;
+# they are reported separately.
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+SHORT_CODE="$1"
+REQUESTS="${2:-2000}"
+CLIENTS="${3:-20}"
+RESULTS_FILE=$(mktemp)
+
+if [ -z "$SHORT_CODE" ]; then
+    echo "Usage: $0 <shortCode> [requests] [clients]"
+    exit 1
+fi
+
+if ! curl -s -o /dev/null "$BASE_URL/$SHORT_CODE"; then
+    echo "❌ Application is not reachable at $BASE_URL"
+    exit 1
+fi
+
+COOKIE_ARGS=()
+if [ -n "$ACCESS_TOKEN" ]; then
+    COOKIE_ARGS=(-b "access_token=$ACCESS_TOKEN")
+fi
+
+echo "========================================"
+echo "⏱  REDIRECT LATENCY LOAD TEST"
+echo "========================================"
+echo "Target: $BASE_URL/$SHORT_CODE"
+echo "Requests: $REQUESTS, clients: $CLIENTS, access token cookie: $([ -n "$ACCESS_TOKEN" ] && echo yes || echo no)"
+echo ""
+
+# Warm the local and Redis caches so every measured request is a cache hit
+for i in 1 2 3; do
+    curl -s -o /dev/null "${COOKIE_ARGS[@]}" "$BASE_URL/$SHORT_CODE"
+done
+
+start=$(date +%s.%N)
+seq "$REQUESTS" | xargs -P "$CLIENTS" -I{} \
+    curl -s -o /dev/null "${COOKIE_ARGS[@]}" -w "%{http_code} %{time_total}\n" "$BASE_URL/$SHORT_CODE" >> "$RESULTS_FILE"
+end=$(date +%s.%N)
+duration=$(echo "$end - $start" | bc)
+
+report() {
+    local status=$1
+    local times
+    times=$(awk -v s="$status" '$1 == s { print $2 * 1000 }' "$RESULTS_FILE" | sort -n)
+    local count
+    count=$(echo "$times" | grep -c .)
+    if [ "$count" -eq 0 ]; then
+        return
+    fi
+    percentile() {
+        echo "$times" | awk -v p="$1" -v n="$count" 'NR == int((n - 1) * p / 100) + 1 { printf "%.2f", $1 }'
+    }
+    local mean
+    mean=$(echo "$times" | awk '{ sum += $1 } END { printf "%.2f", sum / NR }')
+    echo "▶ $status x $count: mean ${mean}ms, p50 $(percentile 50)ms, p90 $(percentile 90)ms, p99 $(percentile 99)ms, max $(percentile 100)ms"
+}
+
+for status in $(cut -d' ' -f1 "$RESULTS_FILE" | sort -u); do
+    report "$status"
+done
+
+echo ""
+echo "   duration: ${duration}s, $(echo "scale=1; $REQUESTS / $duration" | bc) req/s"
+rm -f "$RESULTS_FILE"
+echo ""
+echo "✅ Done. Compare the 302 line between runs with the fast path off and on."
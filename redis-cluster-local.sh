@@ -0,0 +1,81 @@
+#!/bin/bash
+
+# Local Redis Cluster for trying spring.redis.mode=cluster
+# Starts N redis-server processes (3 masters + 3 replicas by default) on
+# consecutive ports and joins them into a cluster.
+#
+# Usage: ./redis-cluster-local.sh start|stop|status
+# Env:   BASE_PORT (7000), NODES (6), REPLICAS (1), DATA_DIR (/tmp/shrinkurl-redis-cluster)
+
+BASE_PORT=${BASE_PORT:-7000}
+NODES=${NODES:-6}
+REPLICAS=${REPLICAS:-1}
+DATA_DIR=${DATA_DIR:-/tmp/shrinkurl-redis-cluster}
+
+node_ports() {
+    for i in $(seq 0 $((NODES - 1))); do
+        echo $((BASE_PORT + i))
+    done
+}
+
+start_cluster() {
+    mkdir -p "$DATA_DIR"
+    local addresses=()
+    for port in $(node_ports); do
+        mkdir -p "$DATA_DIR/$port"
+        redis-server --port "$port" \
+            --cluster-enabled yes \
+            --cluster-config-file "$DATA_DIR/$port/nodes.conf" \
+            --cluster-node-timeout 5000 \
+            --dir "$DATA_DIR/$port" \
+            --appendonly no \
+            --save "" \
+            --hash-max-listpack-value 256 \
+            --daemonize yes \
+            --logfile "$DATA_DIR/$port/redis.log"
+        addresses+=("127.0.0.1:$port")
+    done
+
+    # Wait for every node to answer before creating the cluster
+    for port in $(node_ports); do
+        until redis-cli -p "$port" ping &> /dev/null; do
+            sleep 0.2
+        done
+    done
+
+    if redis-cli -p "$BASE_PORT" cluster info | grep -q "cluster_state:ok"; then
+        echo "✅ Cluster already running"
+    else
+        redis-cli --cluster create "${addresses[@]}" --cluster-replicas "$REPLICAS" --cluster-yes
+    fi
+
+    local nodes
+    nodes=$(IFS=,; echo "${addresses[*]}")
+    echo ""
+    echo "Start the application with:"
+    echo "  SPRING_REDIS_MODE=cluster SPRING_REDIS_CLUSTER_NODES=$nodes ./mvnw spring-boot:run"
+}
+
+stop_cluster() {
+    for port in $(node_ports); do
+        redis-cli -p "$port" shutdown nosave &> /dev/null && echo "Stopped node $port"
+    done
+    rm -rf "$DATA_DIR"
+}
+
+case "$1" in
+    start)
+        start_cluster
+        ;;
+    stop)
+        stop_cluster
+        ;;
+    status)
+        redis-cli -p "$BASE_PORT" cluster info | grep -E "cluster_state|cluster_known_nodes|cluster_slots_ok"
+        redis-cli -p "$BASE_PORT" cluster nodes
+        ;;
+    *)
+        echo "Usage: $0 start|stop|status"
+        exit 1
+        ;;
+esac
@@ -5,6 +5,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.stir.shrinkurl.enums.RateLimitAlgorithm;
+
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface RateLimit {
@@ -34,4 +36,9 @@ public @interface RateLimit {
      * Whether to apply rate limiting per user or globally
      */
     boolean perUser() default true;
+    
+    /**
+     * Algorithm used to count requests against the limit
+     */
+    RateLimitAlgorithm algorithm() default RateLimitAlgorithm.FIXED_WINDOW;
 }
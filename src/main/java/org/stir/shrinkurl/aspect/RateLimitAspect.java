@@ -5,14 +5,14 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.stir.shrinkurl.annotation.RateLimit;
-import org.stir.shrinkurl.entity.User;
+import org.stir.shrinkurl.service.RateLimitContext;
 import org.stir.shrinkurl.service.RateLimitService;
+import org.stir.shrinkurl.utils.RateLimitKeyUtil;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -28,6 +28,9 @@ public class RateLimitAspect {
     @Autowired
     private RateLimitService rateLimitService;
     
+    @Autowired
+    private RateLimitKeyUtil rateLimitKeyUtil;
+    
     @Around("@annotation(rateLimit)")
     public Object around(ProceedingJoinPoint joinPoint, RateLimit rateLimit) throws Throwable {
         
@@ -38,25 +41,25 @@ public class RateLimitAspect {
             return joinPoint.proceed();
         }
         
-        String rateLimitKey = buildRateLimitKey(request, rateLimit);
-        
-        // Check rate limit
-        boolean allowed = rateLimitService.isAllowed(
-            rateLimitKey,
-            rateLimit.value(),
-            rateLimit.timeWindow()
-        );
+        String rateLimitKey = rateLimitKeyUtil.buildRateLimitKey(request, rateLimit);
         
-        if (!allowed) {
-            log.warn("Rate limit exceeded for key: {}", rateLimitKey);
-            
-            // Set rate limit headers
-            RateLimitService.RateLimitStatus status = rateLimitService.getRateLimitStatus(
+        // GlobalRateLimitFilter normally evaluated this limit already, in the same call as the global ones
+        RateLimitContext context = RateLimitContext.get(request);
+        RateLimitService.RateLimitStatus status = context != null ? context.consume(rateLimit) : null;
+        if (status == null) {
+            // Check rate limit; the result also carries the header values
+            status = rateLimitService.checkRateLimit(
                 rateLimitKey,
                 rateLimit.value(),
-                rateLimit.timeWindow()
+                rateLimit.timeWindow(),
+                rateLimit.algorithm()
             );
+        }
+        
+        if (!status.isAllowed()) {
+            log.warn("Rate limit exceeded for key: {}", rateLimitKey);
             
+            // Set rate limit headers
             response.setHeader("X-RateLimit-Limit", String.valueOf(status.getLimit()));
             response.setHeader("X-RateLimit-Remaining", String.valueOf(status.getRemaining()));
             response.setHeader("X-RateLimit-Reset", String.valueOf(status.getResetTime()));
@@ -73,12 +76,18 @@ public class RateLimitAspect {
             } else {
                 // Redirect to error page for browser requests
                 int retryAfter = (int) Math.max(status.getResetTime() - System.currentTimeMillis() / 1000, 0);
-                String errorUrl = "/error/rate-limit?key=" + rateLimitKey + 
-                                 "&current=" + status.getCurrentCount() + 
-                                 "&limit=" + status.getLimit() + 
-                                 "&window=" + rateLimit.timeWindow() + 
-                                 "&retryAfter=" + retryAfter +
-                                 "&redirectUrl=" + request.getRequestURI();
+                // Keys carry {} hash tags, which Tomcat rejects unencoded in a query string
+                String errorUrl = UriComponentsBuilder
+                    .fromPath("/error/rate-limit")
+                    .queryParam("key", rateLimitKey)
+                    .queryParam("current", status.getCurrentCount())
+                    .queryParam("limit", status.getLimit())
+                    .queryParam("window", rateLimit.timeWindow())
+                    .queryParam("retryAfter", retryAfter)
+                    .queryParam("redirectUrl", request.getRequestURI())
+                    .build()
+                    .encode()
+                    .toUriString();
                 response.sendRedirect(errorUrl);
             }
             
@@ -86,12 +95,6 @@ public class RateLimitAspect {
         }
         
         // Add rate limit headers to successful response
-        RateLimitService.RateLimitStatus status = rateLimitService.getRateLimitStatus(
-            rateLimitKey,
-            rateLimit.value(),
-            rateLimit.timeWindow()
-        );
-        
         response.setHeader("X-RateLimit-Limit", String.valueOf(status.getLimit()));
         response.setHeader("X-RateLimit-Remaining", String.valueOf(status.getRemaining()));
         response.setHeader("X-RateLimit-Reset", String.valueOf(status.getResetTime()));
@@ -99,40 +102,6 @@ public class RateLimitAspect {
         return joinPoint.proceed();
     }
     
-    private String buildRateLimitKey(HttpServletRequest request, RateLimit rateLimit) {
-        if (!rateLimit.key().isEmpty()) {
-            // Use custom key if provided
-            return rateLimit.key();
-        }
-        
-        if (rateLimit.perUser()) {
-            // Use user ID if authenticated
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            if (auth != null && auth.getPrincipal() instanceof User) {
-                User user = (User) auth.getPrincipal();
-                return "user:" + user.getId();
-            }
-        }
-        
-        // Fallback to IP address
-        String clientIp = getClientIpAddress(request);
-        return "ip:" + clientIp;
-    }
-    
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
-    }
-    
     private HttpServletRequest getCurrentRequest() {
         ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
         return attrs != null ? attrs.getRequest() : null;
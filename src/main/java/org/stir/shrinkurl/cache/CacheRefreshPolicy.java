@@ -0,0 +1,124 @@
+package org.stir.shrinkurl.cache;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * TTL and early-refresh policy for URL mappings in Redis.
+ *
+ * Mappings are written with a bounded, jittered TTL (never past the URL's
+ * own expiry) so entries written together do not expire together and
+ * mappings nobody reads age out of Redis. Every read then gets a chance to
+ * refresh the entry early, XFetch style: it refreshes when
+ * {@code remaining - gap <= delta * beta * -ln(random)}, where delta is the
+ * observed cost of a database load (with a floor) and gap is how long until
+ * this node is expected to read the mapping from Redis again.
+ *
+ * The local cache answers most reads of a hot code, so a node only reads it
+ * from Redis about once per local TTL; the gap comes from the read rate the
+ * local cache observed ({@link LocalUrlCache#getRedisReadGapMillis}). A
+ * mapping that will expire before the node's next Redis read is refreshed
+ * on this one, so hot mappings are refreshed before they expire. Codes that
+ * were not read again while cached locally have no gap; their chance only
+ * grows in the last moments before expiry, so rarely read ones simply lapse.
+ */
+@Component
+public class CacheRefreshPolicy {
+
+    // Weight of the newest sample in the load time average
+    private static final double LOAD_TIME_ALPHA = 0.1;
+
+    @Value("${url.cache.redis-ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${url.cache.redis-ttl-jitter:0.1}")
+    private double ttlJitter;
+
+    @Value("${url.cache.xfetch-beta:1.0}")
+    private double beta;
+
+    @Value("${url.cache.refresh-min-delta-ms:200}")
+    private long minDeltaMillis;
+
+    private volatile double averageLoadMillis;
+
+    private final LongAdder earlyRefreshes = new LongAdder();
+    private final LongAdder readRateRefreshes = new LongAdder();
+
+    /**
+     * TTL for a mapping written now, or 0 if the URL has already expired
+     */
+    public long ttlSeconds(LocalDateTime expiresAt) {
+        double jitter = 1 + ttlJitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        long ttl = Math.max(1, Math.round(ttlSeconds * jitter));
+        if (expiresAt != null) {
+            long remaining = Duration.between(LocalDateTime.now(), expiresAt).getSeconds();
+            if (remaining <= 0) {
+                return 0;
+            }
+            ttl = Math.min(ttl, remaining);
+        }
+        return ttl;
+    }
+
+    /**
+     * Longest TTL {@link #ttlSeconds} can return
+     */
+    public long getMaxTtlSeconds() {
+        return (long) Math.ceil(ttlSeconds * (1 + ttlJitter));
+    }
+
+    /**
+     * Whether this read should refresh the mapping early, given its remaining
+     * TTL in milliseconds (negative if Redis reported no TTL) and the expected
+     * time until this node reads it from Redis again (negative if unknown)
+     */
+    public boolean shouldRefresh(long remainingMillis, long redisReadGapMillis) {
+        if (remainingMillis < 0) {
+            // Written before TTLs were bounded; rewrite it with one
+            earlyRefreshes.increment();
+            return true;
+        }
+
+        double delta = Math.max(minDeltaMillis, averageLoadMillis);
+        double random = 1 - ThreadLocalRandom.current().nextDouble();
+        long window = remainingMillis - Math.max(0, redisReadGapMillis);
+        boolean refresh = window <= -delta * beta * Math.log(random);
+        if (refresh) {
+            earlyRefreshes.increment();
+            if (redisReadGapMillis > 0) {
+                readRateRefreshes.increment();
+            }
+        }
+        return refresh;
+    }
+
+    /**
+     * Feed the duration of a database load into the refresh delta
+     */
+    public void recordLoadTime(long millis) {
+        double average = averageLoadMillis;
+        averageLoadMillis = average == 0 ? millis : average + LOAD_TIME_ALPHA * (millis - average);
+    }
+
+    /**
+     * Snapshot of refresh counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ttl_seconds", ttlSeconds);
+        stats.put("ttl_jitter", ttlJitter);
+        stats.put("beta", beta);
+        stats.put("average_load_ms", averageLoadMillis);
+        stats.put("early_refreshes", earlyRefreshes.sum());
+        stats.put("read_rate_refreshes", readRateRefreshes.sum());
+        return stats;
+    }
+}
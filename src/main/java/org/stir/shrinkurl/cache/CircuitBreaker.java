@@ -0,0 +1,179 @@
+package org.stir.shrinkurl.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stops calling a failing dependency and lets callers go straight to their fallback.
+ *
+ * CLOSED: calls go through and outcomes are counted in a fixed time window;
+ * once the window holds at least the minimum number of calls and the failure
+ * rate reaches the threshold, the breaker opens.
+ * OPEN: {@link #allowRequest()} returns false until the open duration passes.
+ * HALF_OPEN: a limited number of probe calls go through; if they all succeed
+ * the breaker closes, a single failure opens it again.
+ *
+ * Callers must report every allowed call through {@link #recordSuccess()} or
+ * {@link #recordFailure()}. Probes that never report are given up on after
+ * another open duration.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long windowMillis;
+    private final long openMillis;
+    private final int halfOpenProbes;
+
+    private volatile State state = State.CLOSED;
+    private volatile long stateSince = System.currentTimeMillis();
+    private volatile long windowStart = stateSince;
+
+    private final LongAdder windowCalls = new LongAdder();
+    private final LongAdder windowFailures = new LongAdder();
+    private final AtomicInteger probesIssued = new AtomicInteger();
+    private final AtomicInteger probeSuccesses = new AtomicInteger();
+
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker(String name, double failureRateThreshold, int minimumCalls,
+                          long windowMillis, long openMillis, int halfOpenProbes) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.max(1, minimumCalls);
+        this.windowMillis = windowMillis;
+        this.openMillis = openMillis;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+    }
+
+    /**
+     * Whether the caller may try the dependency now; false means use the fallback
+     */
+    public boolean allowRequest() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - stateSince >= openMillis) {
+            // Open long enough, or the half-open probes never reported back
+            startProbing(current, now);
+        }
+
+        if (state == State.HALF_OPEN && probesIssued.incrementAndGet() <= halfOpenProbes) {
+            return true;
+        }
+        shortCircuited.increment();
+        return false;
+    }
+
+    public void recordSuccess() {
+        State current = state;
+        if (current == State.HALF_OPEN) {
+            if (probeSuccesses.incrementAndGet() >= halfOpenProbes) {
+                close();
+            }
+            return;
+        }
+        if (current == State.CLOSED) {
+            rollWindow(System.currentTimeMillis());
+            windowCalls.increment();
+        }
+    }
+
+    public void recordFailure() {
+        State current = state;
+        long now = System.currentTimeMillis();
+        if (current == State.HALF_OPEN) {
+            open(State.HALF_OPEN, now);
+            return;
+        }
+        if (current == State.CLOSED) {
+            rollWindow(now);
+            windowCalls.increment();
+            windowFailures.increment();
+
+            long calls = windowCalls.sum();
+            if (calls >= minimumCalls && (double) windowFailures.sum() / calls >= failureRateThreshold) {
+                open(State.CLOSED, now);
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Snapshot of breaker state and counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("state", state);
+        stats.put("state_since_ms_ago", System.currentTimeMillis() - stateSince);
+        stats.put("window_calls", windowCalls.sum());
+        stats.put("window_failures", windowFailures.sum());
+        stats.put("failure_rate_threshold", failureRateThreshold);
+        stats.put("short_circuited", shortCircuited.sum());
+        stats.put("times_opened", opened.sum());
+        return stats;
+    }
+
+    private synchronized void open(State from, long now) {
+        if (state != from) {
+            return;
+        }
+        state = State.OPEN;
+        stateSince = now;
+        opened.increment();
+        log.warn("Circuit breaker {} opened ({} of {} calls failed); using fallback for {}ms",
+            name, windowFailures.sum(), windowCalls.sum(), openMillis);
+    }
+
+    private synchronized void startProbing(State from, long now) {
+        if (state != from || now - stateSince < openMillis) {
+            return;
+        }
+        probesIssued.set(0);
+        probeSuccesses.set(0);
+        state = State.HALF_OPEN;
+        stateSince = now;
+        log.info("Circuit breaker {} half-open, probing with {} calls", name, halfOpenProbes);
+    }
+
+    private synchronized void close() {
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        resetWindow(System.currentTimeMillis());
+        state = State.CLOSED;
+        stateSince = windowStart;
+        log.info("Circuit breaker {} closed", name);
+    }
+
+    private void rollWindow(long now) {
+        if (now - windowStart >= windowMillis) {
+            synchronized (this) {
+                if (now - windowStart >= windowMillis) {
+                    resetWindow(now);
+                }
+            }
+        }
+    }
+
+    private void resetWindow(long now) {
+        windowCalls.reset();
+        windowFailures.reset();
+        windowStart = now;
+    }
+}
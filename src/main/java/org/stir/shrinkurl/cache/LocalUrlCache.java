@@ -0,0 +1,238 @@
+package org.stir.shrinkurl.cache;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process (L1) cache of short code -> original URL mappings, consulted
+ * before Redis on the redirect path.
+ *
+ * The cache is split into lock-striped LRU segments so that concurrent
+ * redirects for different codes rarely contend. Every entry carries its own
+ * deadline: the configured TTL, capped by the URL's own expiry. Entries are
+ * only invalidated on this node, so the TTL also bounds how long another
+ * node can keep serving a mapping that was deactivated elsewhere.
+ *
+ * Codes known not to resolve (unknown, expired or deactivated) are cached as
+ * {@link #NOT_FOUND} tombstones with a shorter TTL, so repeated probes for
+ * them neither reach Redis nor the database.
+ *
+ * Each entry counts its reads. An expired entry stays in place until the
+ * mapping is re-cached (or it is evicted), so the read rate it saw can tell
+ * {@link CacheRefreshPolicy} how soon this node will ask Redis again.
+ */
+@Component
+@Slf4j
+public class LocalUrlCache {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    /** Returned by {@link #get(String)} for a code cached as not resolvable; never a real URL */
+    public static final String NOT_FOUND = "";
+
+    @Value("${url.cache.local.enabled:true}")
+    private boolean enabled;
+
+    @Value("${url.cache.local.max-size:10000}")
+    private int maxSize;
+
+    @Value("${url.cache.local.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${url.cache.local.negative-ttl-seconds:10}")
+    private long negativeTtlSeconds;
+
+    private StripedLruMap<String, CachedUrl> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        entries = new StripedLruMap<>(maxSize, SEGMENT_COUNT);
+        log.info("Local URL cache enabled={}, maxSize={}, ttl={}s", enabled, maxSize, ttlSeconds);
+    }
+
+    /**
+     * Get the cached original URL, {@link #NOT_FOUND} for a tombstone, or null
+     * on a miss or an expired entry
+     */
+    public String get(String shortCode) {
+        if (!enabled) {
+            return null;
+        }
+
+        CachedUrl cached = entries.get(shortCode);
+        // Expired entries are left for the re-cache to replace, see getRedisReadGapMillis
+        if (cached == null || cached.expiresAtMillis <= System.currentTimeMillis()) {
+            misses.increment();
+            return null;
+        }
+
+        cached.reads.increment();
+        if (NOT_FOUND.equals(cached.originalUrl)) {
+            negativeHits.increment();
+        } else {
+            hits.increment();
+        }
+        return cached.originalUrl;
+    }
+
+    /**
+     * Cache a mapping, bounded by the URL's expiry date (null means it never expires)
+     */
+    public void put(String shortCode, String originalUrl, LocalDateTime expiresAt) {
+        long deadline = expiresAt != null
+            ? expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+            : Long.MAX_VALUE;
+        putUntil(shortCode, originalUrl, deadline);
+    }
+
+    /**
+     * Cache a mapping whose remaining lifetime is known in milliseconds (negative means no expiry)
+     */
+    public void put(String shortCode, String originalUrl, long remainingMillis) {
+        long deadline = remainingMillis >= 0
+            ? System.currentTimeMillis() + remainingMillis
+            : Long.MAX_VALUE;
+        putUntil(shortCode, originalUrl, deadline);
+    }
+
+    /**
+     * Cache a tombstone for a code that does not resolve, bounded by the
+     * remaining lifetime of the Redis tombstone if known (negative means unknown)
+     */
+    public void putNotFound(String shortCode, long remainingMillis) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long deadline = now + negativeTtlSeconds * 1000;
+        if (remainingMillis >= 0) {
+            deadline = Math.min(deadline, now + remainingMillis);
+        }
+        if (deadline > now) {
+            replace(shortCode, new CachedUrl(NOT_FOUND, now, deadline), now);
+        }
+    }
+
+    /**
+     * Expected time until this node next reads a code from Redis: the local
+     * TTL plus the mean gap between local reads seen by the code's current or
+     * just expired entry. -1 if unknown, e.g. the code was not read again
+     * while cached locally. Call before re-caching the code.
+     */
+    public long getRedisReadGapMillis(String shortCode) {
+        if (!enabled) {
+            return -1;
+        }
+
+        CachedUrl cached = entries.get(shortCode);
+        if (cached == null) {
+            return -1;
+        }
+        long reads = cached.reads.sum();
+        if (reads == 0) {
+            return -1;
+        }
+        long lifetime = Math.min(System.currentTimeMillis(), cached.expiresAtMillis) - cached.createdAtMillis;
+        return ttlSeconds * 1000 + Math.max(0, lifetime) / reads;
+    }
+
+    /**
+     * Drop a mapping, e.g. when the URL is deactivated or expires
+     */
+    public void invalidate(String shortCode) {
+        if (!enabled) {
+            return;
+        }
+
+        if (entries.remove(shortCode) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Snapshot of cache counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", size());
+        stats.put("max_size", maxSize);
+        stats.put("ttl_seconds", ttlSeconds);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hit_ratio", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        stats.put("expirations", expirations.sum());
+        stats.put("evictions", entries.getEvictionCount());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("negative_ttl_seconds", negativeTtlSeconds);
+        stats.put("negative_hits", negativeHits.sum());
+        return stats;
+    }
+
+    private void putUntil(String shortCode, String originalUrl, long urlDeadline) {
+        if (!enabled || originalUrl == null || NOT_FOUND.equals(originalUrl)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long deadline = Math.min(now + ttlSeconds * 1000, urlDeadline);
+        if (deadline <= now) {
+            return;
+        }
+
+        replace(shortCode, new CachedUrl(originalUrl, now, deadline), now);
+    }
+
+    private void replace(String shortCode, CachedUrl entry, long now) {
+        CachedUrl previous = entries.get(shortCode);
+        if (previous != null && previous.expiresAtMillis <= now) {
+            expirations.increment();
+        }
+        entries.put(shortCode, entry);
+    }
+
+    private static final class CachedUrl {
+        private final String originalUrl;
+        private final long createdAtMillis;
+        private final long expiresAtMillis;
+        private final LongAdder reads = new LongAdder();
+
+        CachedUrl(String originalUrl, long createdAtMillis, long expiresAtMillis) {
+            this.originalUrl = originalUrl;
+            this.createdAtMillis = createdAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.stir.shrinkurl.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings that grows instead of degrading.
+ *
+ * Elements go into the newest segment; once it holds its planned capacity a
+ * new segment with twice the capacity and half the false positive rate is
+ * added. A lookup checks every segment, so the overall false positive rate
+ * stays below twice the initial one however many elements are added.
+ * Elements cannot be removed.
+ */
+public class ScalableBloomFilter {
+
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        segments.add(new Segment(Math.max(1, initialCapacity), falsePositiveRate));
+    }
+
+    /**
+     * False means the element was definitely never added
+     */
+    public boolean mightContain(String element) {
+        long hash1 = hash(element, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(element, 0xC2B2AE3D27D4EB4FL);
+        for (Segment segment : segments) {
+            if (segment.mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add an element; returns false (and uses no capacity) if it already
+     * appears to be present, so re-adding known elements does not grow the filter
+     */
+    public boolean add(String element) {
+        long hash1 = hash(element, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(element, 0xC2B2AE3D27D4EB4FL);
+        for (Segment segment : segments) {
+            if (segment.mightContain(hash1, hash2)) {
+                return false;
+            }
+        }
+        segmentForInsert().add(hash1, hash2);
+        return true;
+    }
+
+    public long getApproximateCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.count.get();
+        }
+        return count;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getBitSize() {
+        long bits = 0;
+        for (Segment segment : segments) {
+            bits += segment.bitCount;
+        }
+        return bits;
+    }
+
+    private Segment segmentForInsert() {
+        Segment last = segments.get(segments.size() - 1);
+        if (last.count.get() < last.capacity) {
+            return last;
+        }
+        synchronized (segments) {
+            last = segments.get(segments.size() - 1);
+            if (last.count.get() >= last.capacity) {
+                last = new Segment(last.capacity * 2, last.falsePositiveRate * TIGHTENING_RATIO);
+                segments.add(last);
+            }
+            return last;
+        }
+    }
+
+    private static long hash(String element, long seed) {
+        long h = seed;
+        for (int i = 0; i < element.length(); i++) {
+            h ^= element.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        // Final avalanche so similar codes spread over the whole bit array
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Segment {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray words;
+        private final AtomicLong count = new AtomicLong();
+
+        Segment(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = (long) wordCount * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+
+        boolean mightContain(long hash1, long hash2) {
+            for (int i = 0; i < hashCount; i++) {
+                long bit = index(hash1, hash2, i);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long hash1, long hash2) {
+            for (int i = 0; i < hashCount; i++) {
+                long bit = index(hash1, hash2, i);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = words.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, current, current | mask));
+            }
+            count.incrementAndGet();
+        }
+
+        private long index(long hash1, long hash2, int i) {
+            // Kirsch-Mitzenmacher double hashing
+            return Math.floorMod(hash1 + i * hash2, bitCount);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.stir.shrinkurl.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded map split into lock-striped, access-ordered LRU segments.
+ *
+ * Each key hashes to one segment guarded by its own monitor, so concurrent
+ * callers only contend when their keys share a segment. When a segment
+ * exceeds its share of the capacity, its least recently used entry is evicted.
+ */
+public class StripedLruMap<K, V> {
+
+    private final Segment<K, V>[] segments;
+    private final int mask;
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public StripedLruMap(int maxSize, int stripes) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, stripes));
+        int perSegment = Math.max(1, maxSize / stripeCount);
+        this.segments = new Segment[stripeCount];
+        this.mask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            segments[i] = new Segment<>(perSegment, evictions);
+        }
+    }
+
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> factory) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.computeIfAbsent(key, factory);
+        }
+    }
+
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    /**
+     * Remove the entry only if it is still mapped to the given value
+     */
+    public boolean remove(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key, value);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & mask];
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(Math.min(capacity, 1024), 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
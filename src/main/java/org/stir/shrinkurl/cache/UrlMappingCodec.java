@@ -0,0 +1,174 @@
+package org.stir.shrinkurl.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a cached URL mapping.
+ *
+ * Layout (version 1):
+ * <pre>
+ *   byte 0      header: bits 0-1 version, bit 2 active, bit 3 has deadline
+ *   bytes 1-4   deadline, unsigned epoch seconds (only if bit 3 is set)
+ *   byte 5      index into {@link #PREFIXES}, 0 for none (only if active)
+ *   rest        UTF-8 remainder of the URL (only if active)
+ * </pre>
+ * The deadline is when the cached entry stops being valid, never later than
+ * the URL's own expiry, so a reader can check it without asking Redis for a
+ * TTL. An inactive record is a "does not resolve" tombstone.
+ *
+ * The header byte is always below 0x20, so values written in the old plain
+ * format (a URL string, or an empty tombstone) are still decoded correctly.
+ * A plain value that itself starts with a control byte is rejected as
+ * unreadable rather than misread as a record.
+ */
+public final class UrlMappingCodec {
+
+    private static final int VERSION = 1;
+    private static final int VERSION_MASK = 0x03;
+    private static final int FLAG_ACTIVE = 0x04;
+    private static final int FLAG_DEADLINE = 0x08;
+    private static final int RESERVED_MASK = 0x10;
+
+    /**
+     * Shared dictionary of common URL prefixes. Stored values refer to
+     * entries by index, so entries may only ever be appended.
+     */
+    static final List<String> PREFIXES = Arrays.asList(
+        "",
+        "https://www.",
+        "http://www.",
+        "https://",
+        "http://",
+        "https://www.youtube.com/watch?v=",
+        "https://youtu.be/",
+        "https://github.com/",
+        "https://docs.google.com/",
+        "https://drive.google.com/",
+        "https://www.google.com/",
+        "https://twitter.com/",
+        "https://x.com/",
+        "https://www.linkedin.com/",
+        "https://www.facebook.com/",
+        "https://www.instagram.com/",
+        "https://medium.com/",
+        "https://en.wikipedia.org/wiki/",
+        "https://www.amazon.com/",
+        "https://stackoverflow.com/questions/",
+        "https://www.reddit.com/r/",
+        "https://open.spotify.com/",
+        "https://www.notion.so/",
+        "https://www.dropbox.com/"
+    );
+
+    private UrlMappingCodec() {
+    }
+
+    public static byte[] encode(String originalUrl, long deadlineEpochSeconds) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(originalUrl.length() / 2 + 8);
+        boolean hasDeadline = deadlineEpochSeconds > 0;
+        out.write(VERSION | FLAG_ACTIVE | (hasDeadline ? FLAG_DEADLINE : 0));
+        if (hasDeadline) {
+            writeDeadline(out, deadlineEpochSeconds);
+        }
+
+        int prefix = longestPrefix(originalUrl);
+        out.write(prefix);
+        byte[] rest = originalUrl.substring(PREFIXES.get(prefix).length()).getBytes(StandardCharsets.UTF_8);
+        out.write(rest, 0, rest.length);
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeNotFound(long deadlineEpochSeconds) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(5);
+        out.write(VERSION | FLAG_DEADLINE);
+        writeDeadline(out, deadlineEpochSeconds);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a stored value in either format; null if it cannot be read
+     */
+    public static Decoded decode(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length == 0) {
+            // Plain-format tombstone
+            return new Decoded(null, -1);
+        }
+
+        int header = value[0] & 0xFF;
+        if (header >= 0x20) {
+            // Plain format: the value is the URL itself
+            return new Decoded(new String(value, StandardCharsets.UTF_8), -1);
+        }
+        if ((header & VERSION_MASK) != VERSION || (header & RESERVED_MASK) != 0) {
+            return null;
+        }
+
+        int offset = 1;
+        long deadline = -1;
+        if ((header & FLAG_DEADLINE) != 0) {
+            if (value.length < 5) {
+                return null;
+            }
+            deadline = ((long) (value[1] & 0xFF) << 24) | ((value[2] & 0xFF) << 16)
+                | ((value[3] & 0xFF) << 8) | (value[4] & 0xFF);
+            offset = 5;
+        }
+        if ((header & FLAG_ACTIVE) == 0) {
+            // Tombstones are always written with a deadline and nothing after it
+            return deadline >= 0 && value.length == offset ? new Decoded(null, deadline) : null;
+        }
+
+        if (value.length <= offset) {
+            return null;
+        }
+        int prefix = value[offset] & 0xFF;
+        if (prefix >= PREFIXES.size()) {
+            return null;
+        }
+        String rest = new String(value, offset + 1, value.length - offset - 1, StandardCharsets.UTF_8);
+        return new Decoded(PREFIXES.get(prefix) + rest, deadline);
+    }
+
+    private static int longestPrefix(String url) {
+        int best = 0;
+        for (int i = 1; i < PREFIXES.size(); i++) {
+            String prefix = PREFIXES.get(i);
+            if (prefix.length() > PREFIXES.get(best).length() && url.startsWith(prefix)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static void writeDeadline(ByteArrayOutputStream out, long epochSeconds) {
+        long value = Math.min(epochSeconds, 0xFFFFFFFFL);
+        out.write((int) (value >>> 24));
+        out.write((int) (value >>> 16));
+        out.write((int) (value >>> 8));
+        out.write((int) value);
+    }
+
+    /**
+     * A decoded mapping: the URL (null for a tombstone) and the deadline in
+     * epoch seconds (-1 if the value carries none)
+     */
+    public static final class Decoded {
+        private final String originalUrl;
+        private final long deadlineEpochSeconds;
+
+        Decoded(String originalUrl, long deadlineEpochSeconds) {
+            this.originalUrl = originalUrl;
+            this.deadlineEpochSeconds = deadlineEpochSeconds;
+        }
+
+        public String getOriginalUrl() { return originalUrl; }
+        public long getDeadlineEpochSeconds() { return deadlineEpochSeconds; }
+        public boolean isNotFound() { return originalUrl == null; }
+    }
+}
@@ -0,0 +1,624 @@
+package org.stir.shrinkurl.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.stir.shrinkurl.entity.Url;
+import org.stir.shrinkurl.utils.UrlShortenerUtil;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * All reads and writes of short code -> URL mappings in Redis DB 0.
+ *
+ * Values are written in the compact {@link UrlMappingCodec} format by
+ * default ({@code url.cache.redis.format=plain} writes the old plain
+ * strings); either format is read. Two layouts are supported:
+ * <ul>
+ *   <li>{@code string} (default): one {@code url:<code>} key per mapping
+ *       with a Redis TTL.</li>
+ *   <li>{@code hash}: mappings grouped into {@code urlb:<code prefix>} hash
+ *       buckets, field = rest of the code. Small buckets use Redis' compact
+ *       listpack encoding, which saves most of the per-key overhead. Entries
+ *       expire through the deadline in their value; a bucket's own TTL is
+ *       extended on every write, so a bucket that keeps receiving writes
+ *       never expires as a whole. Stale fields are deleted when read, and
+ *       a write sweeps its bucket in the background (HSCAN + HDEL of fields
+ *       past their deadline), at most once per
+ *       {@code bucket-sweep-interval-seconds} per bucket and node, so
+ *       mappings nobody reads still leave Redis. Raise {@code hash-max-listpack-value} (e.g. to 256) so buckets with
+ *       longer URLs keep the compact encoding.</li>
+ * </ul>
+ * Every operation touches a single key, so both layouts work on a Redis
+ * Cluster. Jedis cannot pipeline across cluster nodes, so in cluster mode
+ * batched writes are sent one command at a time.
+ */
+@Component
+@Slf4j
+public class UrlMappingStore {
+
+    static final String KEY_PREFIX = "url:";
+    static final String BUCKET_PREFIX = "urlb:";
+
+    // Scratch namespace for memory measurements; never used by real mappings
+    private static final String MEASURE_PREFIX = "urlm:";
+
+    private static final int SWEEP_SCAN_COUNT = 100;
+
+    @Autowired
+    @Qualifier("urlMappingRedisTemplate")
+    private RedisTemplate<String, Object> urlMappingRedisTemplate;
+
+    @Autowired
+    private CacheRefreshPolicy cacheRefreshPolicy;
+
+    @Autowired
+    private UrlShortenerUtil urlShortenerUtil;
+
+    @Value("${url.cache.redis.format:compact}")
+    private String format;
+
+    @Value("${url.cache.redis.layout:string}")
+    private String layout;
+
+    @Value("${url.cache.redis.bucket-prefix-length:3}")
+    private int bucketPrefixLength;
+
+    @Value("${url.cache.redis.bucket-sweep-interval-seconds:300}")
+    private long bucketSweepIntervalSeconds;
+
+    @Value("${url.cache.redis.bucket-sweep-queue-size:1000}")
+    private int bucketSweepQueueSize;
+
+    // Buckets whose last sweep time this node remembers
+    @Value("${url.cache.redis.bucket-sweep-tracked:100000}")
+    private int bucketSweepTracked;
+
+    @Value("${spring.redis.mode:standalone}")
+    private String redisMode;
+
+    private boolean compact;
+    private boolean buckets;
+    private boolean cluster;
+
+    private StripedLruMap<String, Long> lastBucketSweeps;
+    private ThreadPoolExecutor bucketSweeper;
+
+    private final LongAdder bucketSweeps = new LongAdder();
+    private final LongAdder sweptFields = new LongAdder();
+    private final LongAdder skippedSweeps = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        compact = !"plain".equalsIgnoreCase(format);
+        buckets = "hash".equalsIgnoreCase(layout);
+        cluster = "cluster".equalsIgnoreCase(redisMode);
+        if (buckets && !compact) {
+            // Hash fields have no TTL of their own, so the deadline must live in the value
+            log.warn("url.cache.redis.layout=hash requires the compact format; using compact");
+            compact = true;
+        }
+        if (buckets) {
+            lastBucketSweeps = new StripedLruMap<>(bucketSweepTracked, 16);
+            bucketSweeper = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(bucketSweepQueueSize), r -> {
+                    Thread thread = new Thread(r, "url-bucket-sweep");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+        log.info("URL mapping store: format={}, layout={}", compact ? "compact" : "plain", buckets ? "hash" : "string");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (bucketSweeper != null) {
+            bucketSweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Look up a mapping; null on a miss. Tombstones come back with
+     * {@link LocalUrlCache#NOT_FOUND} as the URL.
+     */
+    public CachedMapping get(String shortCode) {
+        long now = System.currentTimeMillis();
+
+        if (buckets) {
+            byte[] bucket = bucketKey(BUCKET_PREFIX, shortCode);
+            byte[] field = bucketField(shortCode);
+            byte[] value = urlMappingRedisTemplate.execute(
+                (RedisCallback<byte[]>) connection -> connection.hashCommands().hGet(bucket, field));
+            UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(value);
+            if (decoded == null) {
+                return null;
+            }
+            long remaining = decoded.getDeadlineEpochSeconds() * 1000 - now;
+            if (decoded.getDeadlineEpochSeconds() < 0 || remaining <= 0) {
+                urlMappingRedisTemplate.execute((RedisCallback<Long>) connection -> connection.hashCommands().hDel(bucket, field));
+                return null;
+            }
+            return toMapping(decoded, remaining);
+        }
+
+        // Value and TTL in one round trip; the TTL covers values written without a deadline.
+        // Results stay raw bytes: the template's string serializer would mangle binary values.
+        byte[] key = stringKey(KEY_PREFIX, shortCode);
+        List<Object> results;
+        if (cluster) {
+            results = urlMappingRedisTemplate.execute((RedisCallback<List<Object>>) connection -> Arrays.asList(
+                connection.stringCommands().get(key),
+                connection.keyCommands().pTtl(key)));
+        } else {
+            results = urlMappingRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().get(key);
+                connection.keyCommands().pTtl(key);
+                return null;
+            }, RedisSerializer.byteArray());
+        }
+        UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(toBytes(results.get(0)));
+        if (decoded == null) {
+            return null;
+        }
+        Long pttl = (Long) results.get(1);
+        long remaining = decoded.getDeadlineEpochSeconds() > 0
+            ? decoded.getDeadlineEpochSeconds() * 1000 - now
+            : (pttl != null ? pttl : -1L);
+        return toMapping(decoded, remaining);
+    }
+
+    /**
+     * Cache a mapping with a TTL from the refresh policy (skipped if the URL has expired)
+     */
+    public void put(String shortCode, String originalUrl, LocalDateTime expiresAt) {
+        long ttl = cacheRefreshPolicy.ttlSeconds(expiresAt);
+        if (ttl <= 0) {
+            return;
+        }
+        byte[] value = encode(originalUrl, ttl);
+        writeBatch(connection -> write(connection, KEY_PREFIX, BUCKET_PREFIX, shortCode, value, ttl));
+    }
+
+    /**
+     * Cache a tombstone; unless overwriting, an existing mapping is kept
+     */
+    public void putNotFound(String shortCode, long ttlSeconds, boolean overwrite) {
+        long deadline = System.currentTimeMillis() / 1000 + ttlSeconds;
+        byte[] value = compact ? UrlMappingCodec.encodeNotFound(deadline) : new byte[0];
+
+        writeBatch(connection -> {
+            if (buckets) {
+                byte[] bucket = bucketKey(BUCKET_PREFIX, shortCode);
+                if (overwrite) {
+                    connection.hashCommands().hSet(bucket, bucketField(shortCode), value);
+                } else {
+                    connection.hashCommands().hSetNX(bucket, bucketField(shortCode), value);
+                }
+                connection.keyCommands().expire(bucket, cacheRefreshPolicy.getMaxTtlSeconds());
+                sweepLater(bucket);
+            } else {
+                connection.stringCommands().set(stringKey(KEY_PREFIX, shortCode), value,
+                    Expiration.seconds(ttlSeconds), overwrite ? SetOption.UPSERT : SetOption.SET_IF_ABSENT);
+            }
+        });
+    }
+
+    /**
+     * Write many mappings in one pipelined round trip; returns how many were
+     * written (already expired URLs are skipped)
+     */
+    public int putAll(List<Url> urls) {
+        if (urls.isEmpty()) {
+            return 0;
+        }
+
+        int[] written = new int[1];
+        writeBatch(connection -> {
+            Set<String> touchedBuckets = new HashSet<>();
+            for (Url url : urls) {
+                long ttl = cacheRefreshPolicy.ttlSeconds(url.getExpiresAt());
+                if (ttl > 0) {
+                    byte[] value = encode(url.getOriginalUrl(), ttl);
+                    if (buckets) {
+                        byte[] bucket = bucketKey(BUCKET_PREFIX, url.getShortCode());
+                        connection.hashCommands().hSet(bucket, bucketField(url.getShortCode()), value);
+                        // One TTL extension per bucket per batch
+                        if (touchedBuckets.add(new String(bucket, StandardCharsets.UTF_8))) {
+                            connection.keyCommands().expire(bucket, cacheRefreshPolicy.getMaxTtlSeconds());
+                            sweepLater(bucket);
+                        }
+                    } else {
+                        connection.stringCommands().setEx(stringKey(KEY_PREFIX, url.getShortCode()), ttl, value);
+                    }
+                    written[0]++;
+                }
+            }
+        });
+        return written[0];
+    }
+
+    public void delete(String shortCode) {
+        urlMappingRedisTemplate.execute((RedisCallback<Long>) connection -> buckets
+            ? connection.hashCommands().hDel(bucketKey(BUCKET_PREFIX, shortCode), bucketField(shortCode))
+            : connection.keyCommands().del(stringKey(KEY_PREFIX, shortCode)));
+    }
+
+    /**
+     * Snapshot of bucket sweep counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("layout", buckets ? "hash" : "string");
+        stats.put("format", compact ? "compact" : "plain");
+        stats.put("bucket_sweeps", bucketSweeps.sum());
+        stats.put("swept_fields", sweptFields.sum());
+        stats.put("skipped_sweeps", skippedSweeps.sum());
+        stats.put("bucket_sweep_queue", bucketSweeper != null ? bucketSweeper.getQueue().size() : 0);
+        return stats;
+    }
+
+    /**
+     * Number of cached mappings (including tombstones); walks the keyspace, debug use only
+     */
+    public long countMappings() {
+        if (!buckets) {
+            Set<String> keys = urlMappingRedisTemplate.keys(KEY_PREFIX + "*");
+            return keys != null ? keys.size() : 0;
+        }
+        Set<String> bucketKeys = urlMappingRedisTemplate.keys(BUCKET_PREFIX + "*");
+        long count = 0;
+        if (bucketKeys != null) {
+            for (String bucket : bucketKeys) {
+                count += urlMappingRedisTemplate.opsForHash().size(bucket);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Up to {@code limit} cached short codes; walks the keyspace, debug use only
+     */
+    public List<String> listCodes(int limit) {
+        List<String> codes = new ArrayList<>();
+        if (!buckets) {
+            Set<String> keys = urlMappingRedisTemplate.keys(KEY_PREFIX + "*");
+            if (keys != null) {
+                for (String key : keys) {
+                    if (codes.size() >= limit) {
+                        break;
+                    }
+                    codes.add(key.substring(KEY_PREFIX.length()));
+                }
+            }
+            return codes;
+        }
+
+        Set<String> bucketKeys = urlMappingRedisTemplate.keys(BUCKET_PREFIX + "*");
+        if (bucketKeys != null) {
+            for (String bucket : bucketKeys) {
+                for (Object field : urlMappingRedisTemplate.opsForHash().keys(bucket)) {
+                    if (codes.size() >= limit) {
+                        return codes;
+                    }
+                    codes.add(bucket.substring(BUCKET_PREFIX.length()) + field);
+                }
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Where and how a code is stored, for the debug endpoints
+     */
+    public Map<String, Object> describe(String shortCode) {
+        Map<String, Object> description = new HashMap<>();
+        description.put("layout", buckets ? "hash" : "string");
+        description.put("format", compact ? "compact" : "plain");
+        description.put("redis_key", buckets
+            ? new String(bucketKey(BUCKET_PREFIX, shortCode), StandardCharsets.UTF_8)
+            : KEY_PREFIX + shortCode);
+        if (buckets) {
+            description.put("hash_field", new String(bucketField(shortCode), StandardCharsets.UTF_8));
+        }
+
+        CachedMapping mapping = get(shortCode);
+        description.put("found_in_redis", mapping != null);
+        if (mapping != null) {
+            description.put("original_url", mapping.isNotFound() ? null : mapping.getOriginalUrl());
+            description.put("tombstone", mapping.isNotFound());
+            description.put("ttl_seconds", mapping.getRemainingMillis() >= 0 ? mapping.getRemainingMillis() / 1000 : -1);
+        }
+        return description;
+    }
+
+    /**
+     * Measure Redis memory per mapping for the plain and compact string
+     * layouts and the hash bucket layout, using scratch keys that are
+     * removed afterwards. Bucket density is simulated for a keyspace of
+     * {@code assumedMappings} codes.
+     */
+    public Map<String, Object> measureMemory(List<String> sampleUrls, int sampleSize, long assumedMappings) {
+        if (sampleUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one sample URL is required");
+        }
+        if (cluster) {
+            // MEMORY USAGE and CONFIG are node commands; the numbers are per node anyway
+            throw new IllegalStateException("Memory measurement needs a standalone Redis; run it against one cluster node");
+        }
+
+        int suffixLength = UrlShortenerUtil.SEQUENCE_CODE_LENGTH - bucketPrefixLength;
+        long suffixSpace = (long) Math.pow(62, suffixLength);
+        long bucketSpace = (long) Math.pow(62, bucketPrefixLength);
+        long perBucket = Math.max(1, Math.min(assumedMappings / bucketSpace, suffixSpace));
+
+        List<String> codes = new ArrayList<>(sampleSize);
+        for (int i = 0; i < sampleSize; i++) {
+            codes.add(urlShortenerUtil.encodeSequence((i / perBucket) * suffixSpace + (i % perBucket)));
+        }
+
+        long ttl = cacheRefreshPolicy.getMaxTtlSeconds();
+        Map<String, Object> variants = new LinkedHashMap<>();
+        double plain = measureVariant(codes, sampleUrls, false, false, ttl);
+        variants.put("plain_string", variantStats(plain, plain));
+        variants.put("compact_string", variantStats(measureVariant(codes, sampleUrls, true, false, ttl), plain));
+        variants.put("compact_hash", variantStats(measureVariant(codes, sampleUrls, true, true, ttl), plain));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("sample_size", sampleSize);
+        result.put("sample_urls", sampleUrls.size());
+        result.put("assumed_mappings", assumedMappings);
+        result.put("mappings_per_bucket", perBucket);
+        result.put("variants", variants);
+        result.put("hash_max_listpack_value", readConfig("hash-max-listpack-value"));
+        result.put("hash_max_listpack_entries", readConfig("hash-max-listpack-entries"));
+        return result;
+    }
+
+    private double measureVariant(List<String> codes, List<String> urls, boolean compactValues, boolean hashLayout, long ttl) {
+        List<byte[]> keys = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String code : codes) {
+            byte[] key = hashLayout ? bucketKey(MEASURE_PREFIX, code) : stringKey(MEASURE_PREFIX, code);
+            if (seen.add(new String(key, StandardCharsets.UTF_8))) {
+                keys.add(key);
+            }
+        }
+
+        try {
+            long deadline = System.currentTimeMillis() / 1000 + ttl;
+            for (int start = 0; start < codes.size(); start += 1000) {
+                List<String> chunk = codes.subList(start, Math.min(codes.size(), start + 1000));
+                int offset = start;
+                urlMappingRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        String url = urls.get((offset + i) % urls.size());
+                        byte[] value = compactValues
+                            ? UrlMappingCodec.encode(url, deadline)
+                            : url.getBytes(StandardCharsets.UTF_8);
+                        if (hashLayout) {
+                            connection.hashCommands().hSet(bucketKey(MEASURE_PREFIX, chunk.get(i)), bucketField(chunk.get(i)), value);
+                        } else {
+                            connection.stringCommands().setEx(stringKey(MEASURE_PREFIX, chunk.get(i)), ttl, value);
+                        }
+                    }
+                    return null;
+                });
+            }
+            if (hashLayout) {
+                urlMappingRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    keys.forEach(key -> connection.keyCommands().expire(key, ttl));
+                    return null;
+                });
+            }
+
+            long total = 0;
+            for (int start = 0; start < keys.size(); start += 1000) {
+                List<byte[]> chunk = keys.subList(start, Math.min(keys.size(), start + 1000));
+                List<Object> usage = urlMappingRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (byte[] key : chunk) {
+                        connection.execute("MEMORY", "USAGE".getBytes(StandardCharsets.UTF_8), key,
+                            "SAMPLES".getBytes(StandardCharsets.UTF_8), "0".getBytes(StandardCharsets.UTF_8));
+                    }
+                    return null;
+                });
+                for (Object bytes : usage) {
+                    total += bytes instanceof Number ? ((Number) bytes).longValue() : 0;
+                }
+            }
+            return (double) total / codes.size();
+        } finally {
+            urlMappingRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                keys.forEach(key -> connection.keyCommands().del(key));
+                return null;
+            });
+        }
+    }
+
+    private Map<String, Object> variantStats(double bytesPerMapping, double plainBytesPerMapping) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("bytes_per_mapping", bytesPerMapping);
+        stats.put("mb_per_million_mappings", bytesPerMapping * 1_000_000 / (1024 * 1024));
+        stats.put("saving_vs_plain_percent", plainBytesPerMapping > 0
+            ? 100.0 * (plainBytesPerMapping - bytesPerMapping) / plainBytesPerMapping
+            : 0.0);
+        return stats;
+    }
+
+    private String readConfig(String name) {
+        try {
+            Properties config = urlMappingRedisTemplate.execute(
+                (RedisCallback<Properties>) connection -> connection.serverCommands().getConfig(name));
+            return config != null ? config.getProperty(name) : null;
+        } catch (Exception e) {
+            // CONFIG is often disabled on managed Redis
+            return null;
+        }
+    }
+
+    /**
+     * Run writes whose replies are not needed: pipelined on a standalone
+     * Redis, one command at a time on a cluster
+     */
+    private void writeBatch(Consumer<RedisConnection> writes) {
+        if (cluster) {
+            urlMappingRedisTemplate.execute((RedisCallback<Object>) connection -> {
+                writes.accept(connection);
+                return null;
+            });
+            return;
+        }
+        urlMappingRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            writes.accept(connection);
+            return null;
+        });
+    }
+
+    private void write(RedisConnection connection, String keyPrefix, String bucketPrefix, String shortCode, byte[] value, long ttl) {
+        if (buckets) {
+            byte[] bucket = bucketKey(bucketPrefix, shortCode);
+            connection.hashCommands().hSet(bucket, bucketField(shortCode), value);
+            connection.keyCommands().expire(bucket, cacheRefreshPolicy.getMaxTtlSeconds());
+            sweepLater(bucket);
+        } else {
+            // Value and TTL in one command so a key can never be left without expiry
+            connection.stringCommands().setEx(stringKey(keyPrefix, shortCode), ttl, value);
+        }
+    }
+
+    /**
+     * Queue a sweep of a bucket that was just written, unless this node swept
+     * it within the sweep interval
+     */
+    private void sweepLater(byte[] bucket) {
+        String key = new String(bucket, StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis();
+        Long lastSweep = lastBucketSweeps.get(key);
+        if (lastSweep != null && now - lastSweep < bucketSweepIntervalSeconds * 1000) {
+            return;
+        }
+        lastBucketSweeps.put(key, now);
+        try {
+            bucketSweeper.execute(() -> {
+                try {
+                    sweepBucket(bucket);
+                } catch (Exception e) {
+                    log.debug("Sweep of {} failed: {}", key, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Sweep queue is full; a later write to the bucket will try again
+            lastBucketSweeps.remove(key, now);
+            skippedSweeps.increment();
+        }
+    }
+
+    /**
+     * Delete the fields of a bucket whose deadline has passed, with the same
+     * rule reads use. A field rewritten between the scan and the delete is
+     * lost, which only costs one cache miss.
+     */
+    private void sweepBucket(byte[] bucket) {
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        List<byte[]> stale = new ArrayList<>();
+        urlMappingRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            ScanOptions options = ScanOptions.scanOptions().count(SWEEP_SCAN_COUNT).build();
+            try (Cursor<Map.Entry<byte[], byte[]>> cursor = connection.hashCommands().hScan(bucket, options)) {
+                while (cursor.hasNext()) {
+                    Map.Entry<byte[], byte[]> entry = cursor.next();
+                    UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(entry.getValue());
+                    if (decoded == null || decoded.getDeadlineEpochSeconds() < 0 || decoded.getDeadlineEpochSeconds() <= nowSeconds) {
+                        stale.add(entry.getKey());
+                    }
+                }
+            }
+            for (int start = 0; start < stale.size(); start += SWEEP_SCAN_COUNT) {
+                List<byte[]> chunk = stale.subList(start, Math.min(stale.size(), start + SWEEP_SCAN_COUNT));
+                connection.hashCommands().hDel(bucket, chunk.toArray(new byte[0][]));
+            }
+            return null;
+        });
+        bucketSweeps.increment();
+        sweptFields.add(stale.size());
+    }
+
+    private byte[] encode(String originalUrl, long ttlSeconds) {
+        return compact
+            ? UrlMappingCodec.encode(originalUrl, System.currentTimeMillis() / 1000 + ttlSeconds)
+            : originalUrl.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private CachedMapping toMapping(UrlMappingCodec.Decoded decoded, long remainingMillis) {
+        return new CachedMapping(decoded.isNotFound() ? LocalUrlCache.NOT_FOUND : decoded.getOriginalUrl(), remainingMillis);
+    }
+
+    private byte[] stringKey(String prefix, String shortCode) {
+        return (prefix + shortCode).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] bucketKey(String prefix, String shortCode) {
+        int split = Math.min(bucketPrefixLength, shortCode.length());
+        return (prefix + shortCode.substring(0, split)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] bucketField(String shortCode) {
+        int split = Math.min(bucketPrefixLength, shortCode.length());
+        return shortCode.substring(split).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toBytes(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A mapping read from Redis: the URL ({@link LocalUrlCache#NOT_FOUND} for
+     * a tombstone) and its remaining lifetime in milliseconds (-1 if unknown)
+     */
+    public static final class CachedMapping {
+        private final String originalUrl;
+        private final long remainingMillis;
+
+        CachedMapping(String originalUrl, long remainingMillis) {
+            this.originalUrl = originalUrl;
+            this.remainingMillis = remainingMillis;
+        }
+
+        public String getOriginalUrl() { return originalUrl; }
+        public long getRemainingMillis() { return remainingMillis; }
+        public boolean isNotFound() { return LocalUrlCache.NOT_FOUND.equals(originalUrl); }
+    }
+}
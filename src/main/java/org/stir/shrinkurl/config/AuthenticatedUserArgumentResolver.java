@@ -0,0 +1,53 @@
+package org.stir.shrinkurl.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.stir.shrinkurl.dto.AuthenticatedUser;
+import org.stir.shrinkurl.entity.User;
+import org.stir.shrinkurl.service.UserSnapshotCache;
+
+/**
+ * Resolves {@code @AuthenticationPrincipal User} parameters for requests
+ * authenticated with an {@link AuthenticatedUser} principal. The user comes
+ * from {@link UserSnapshotCache}, so only handlers that ask for it cost a
+ * lookup, and usually not a database query. Resolves to null for anonymous
+ * requests or users that no longer exist, as Spring Security's own resolver
+ * does for a principal of another type.
+ */
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final UserSnapshotCache userSnapshotCache;
+
+    public AuthenticatedUserArgumentResolver(UserSnapshotCache userSnapshotCache) {
+        this.userSnapshotCache = userSnapshotCache;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(AuthenticationPrincipal.class)
+            && User.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return null;
+        }
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof User) {
+            return principal;
+        }
+        if (principal instanceof AuthenticatedUser) {
+            return userSnapshotCache.getUser(((AuthenticatedUser) principal).getId()).orElse(null);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,47 @@
+package org.stir.shrinkurl.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Connection usage of the JDBC pools: the auto-configured pool, or the
+ * primary and replica pools when {@link ReadReplicaConfig} is active.
+ * Sampled under load (see benchmark-redirect-db-pool.sh) it shows how many
+ * connections the redirect path holds.
+ */
+@Component
+public class DatabasePoolMonitor {
+
+    @Autowired
+    private List<HikariDataSource> dataSources;
+
+    /**
+     * Snapshot of pool gauges, keyed by pool name, for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (HikariDataSource dataSource : dataSources) {
+            Map<String, Object> pool = new HashMap<>();
+            HikariPoolMXBean bean = dataSource.getHikariPoolMXBean();
+            if (bean == null) {
+                // Pools start on their first connection
+                pool.put("started", false);
+            } else {
+                pool.put("active", bean.getActiveConnections());
+                pool.put("idle", bean.getIdleConnections());
+                pool.put("total", bean.getTotalConnections());
+                pool.put("threads_awaiting", bean.getThreadsAwaitingConnection());
+            }
+            pool.put("maximum_pool_size", dataSource.getMaximumPoolSize());
+            stats.put(dataSource.getPoolName(), pool);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,123 @@
+package org.stir.shrinkurl.config;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Anonymous, high-volume routes that skip JWT processing and the Spring
+ * Security filter chain: short code redirects ({@code GET /{shortCode}}) and
+ * static assets.
+ *
+ * A single path segment shaped like a short code is a redirect unless an
+ * application page is mapped at that path (e.g. {@code /dashboard}); those
+ * pages are collected from the MVC handler mappings at startup, so new pages
+ * never fall onto the fast path by accident. Until then nothing is fast-pathed.
+ * Everything else, including {@code /api/**}, keeps full authentication.
+ */
+@Component
+@Slf4j
+public class PublicRoutes implements SmartInitializingSingleton {
+
+    private static final String[] STATIC_PREFIXES = {"/css/", "/js/", "/images/"};
+    private static final String FAVICON = "/favicon.ico";
+
+    // Same characters and length bounds as custom codes (UrlShortenerUtil.isValidCustomCode)
+    private static final Pattern SHORT_CODE_PATH = Pattern.compile("^/[a-zA-Z0-9]{3,20}$");
+
+    // Handled by Spring Security filters, so absent from the handler mappings
+    private static final String[] SECURITY_PATHS = {"/logout"};
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${security.public-fast-path.enabled:true}")
+    private boolean enabled;
+
+    private volatile Set<String> reservedPaths;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Set<String> paths = new HashSet<>();
+        for (String path : SECURITY_PATHS) {
+            paths.add(path);
+        }
+        for (RequestMappingInfoHandlerMapping mapping : applicationContext.getBeansOfType(RequestMappingInfoHandlerMapping.class).values()) {
+            mapping.getHandlerMethods().keySet().forEach(info -> {
+                for (String pattern : info.getPatternValues()) {
+                    if (SHORT_CODE_PATH.matcher(pattern).matches()) {
+                        paths.add(pattern);
+                    }
+                }
+            });
+        }
+        reservedPaths = paths;
+        log.info("Public fast path {} ({} reserved top-level paths)", enabled ? "enabled" : "disabled", paths.size());
+    }
+
+    /**
+     * Whether the request should skip JWT processing and the security chain
+     */
+    public boolean isFastPath(HttpServletRequest request) {
+        return enabled && isPublic(request);
+    }
+
+    /**
+     * Whether the request is an anonymous redirect or static asset that needs no authentication
+     */
+    public boolean isPublic(HttpServletRequest request) {
+        Set<String> reserved = reservedPaths;
+        if (reserved == null) {
+            return false;
+        }
+        if (!isReadMethod(request)) {
+            return false;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return isStaticAsset(path) || isRedirectPath(path, reserved);
+    }
+
+    /**
+     * Whether the request is a public short code redirect ({@code GET /{shortCode}})
+     */
+    public boolean isRedirect(HttpServletRequest request) {
+        Set<String> reserved = reservedPaths;
+        if (reserved == null || !isReadMethod(request)) {
+            return false;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return isRedirectPath(path, reserved);
+    }
+
+    private static boolean isReadMethod(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    private static boolean isStaticAsset(String path) {
+        if (FAVICON.equals(path)) {
+            return true;
+        }
+        for (String prefix : STATIC_PREFIXES) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRedirectPath(String path, Set<String> reserved) {
+        return SHORT_CODE_PATH.matcher(path).matches() && !reserved.contains(path);
+    }
+}
@@ -0,0 +1,88 @@
+package org.stir.shrinkurl.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Sends read-only transactions to a MySQL replica when
+ * {@code spring.datasource.replica.url} is set; without it the auto-configured
+ * single data source is used as before.
+ *
+ * The application data source is a {@link LazyConnectionDataSourceProxy}: it
+ * only fetches a physical connection at the first statement, once the
+ * transaction's read-only flag is known, and takes it from the replica pool
+ * for read-only transactions. While {@link ReplicaLagMonitor} sees the replica
+ * too far behind (or not replicating), read-only work goes to the primary too.
+ * Repository methods opt in with {@code @Transactional(readOnly = true)}; when
+ * they join a surrounding read-write transaction they use its primary connection.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    @Value("${spring.datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${spring.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${spring.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${spring.datasource.replica.maximum-pool-size:20}")
+    private int replicaMaximumPoolSize;
+
+    // Short, so an unreachable replica sends reads to the primary quickly
+    @Value("${spring.datasource.replica.connection-timeout-ms:1000}")
+    private long replicaConnectionTimeoutMs;
+
+    @Bean(name = "primaryDataSource")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(name = "replicaDataSource")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(replicaUrl);
+        dataSource.setUsername(replicaUsername);
+        dataSource.setPassword(replicaPassword);
+        if (properties.getDriverClassName() != null) {
+            dataSource.setDriverClassName(properties.getDriverClassName());
+        }
+        dataSource.setMaximumPoolSize(replicaMaximumPoolSize);
+        dataSource.setConnectionTimeout(replicaConnectionTimeoutMs);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        return new ReplicaLagMonitor(replicaDataSource);
+    }
+
+    @Bean(name = "dataSource")
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaLagMonitor.routing(primaryDataSource, replicaDataSource));
+        return dataSource;
+    }
+}
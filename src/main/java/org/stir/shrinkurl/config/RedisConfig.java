@@ -1,52 +1,253 @@
 package org.stir.shrinkurl.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisClientConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.stir.shrinkurl.cache.CircuitBreaker;
 
+/**
+ * Redis connections for the URL-mapping (DB 0), rate-limit (DB 1) and
+ * session (DB 2) templates.
+ *
+ * DB 0 and DB 1 hold data that can be rebuilt, so they may be flushed and
+ * evicted like any cache. The session template holds refresh tokens and
+ * shared token rotations, which cannot be rebuilt: losing them signs users
+ * out. It can point at its own instance ({@code spring.redis.session.host},
+ * {@code spring.redis.session.port}), which should run with
+ * {@code maxmemory-policy noeviction} because eviction is per instance, not
+ * per database.
+ *
+ * With {@code spring.redis.mode=cluster} both templates talk to one Redis
+ * Cluster ({@code spring.redis.cluster.nodes}) instead. A cluster has no
+ * numbered databases, so the kinds of data are kept apart only by their
+ * key prefixes ({@code url:}, {@code urlb:} vs {@code rate_limit:},
+ * {@code global_rate_limit:} vs {@code refresh_token:}, {@code token_rotation:}). Keys used together in one rate limit script
+ * carry the client as a hash tag so they land in the same slot.
+ *
+ * All databases use the same pooled client settings; a Jedis pool is bound to
+ * one database, so each gets its own pool. Borrowing fails fast once a pool is
+ * exhausted, and reads are bounded by a per-database timeout, so a slow Redis
+ * costs a redirect at most the URL-mapping read timeout before it falls back
+ * to the database. Pools are registered over JMX for {@link RedisPoolMonitor}.
+ * Each database also has a {@link CircuitBreaker}, so that while it keeps
+ * failing callers go to their fallback without paying for the failure.
+ */
 @Configuration
 public class RedisConfig {
-    
+
+    static final String URL_MAPPING_POOL = "redis-url-mapping";
+    static final String RATE_LIMIT_POOL = "redis-rate-limit";
+    static final String SESSION_POOL = "redis-session";
+
     @Value("${spring.redis.host:localhost}")
     private String redisHost;
-    
+
     @Value("${spring.redis.port:6379}")
     private int redisPort;
-    
+
     @Value("${spring.redis.password:}")
     private String redisPassword;
-    
+
+    // standalone or cluster
+    @Value("${spring.redis.mode:standalone}")
+    private String redisMode;
+
+    // host:port,host:port,... (any subset of the cluster's nodes)
+    @Value("${spring.redis.cluster.nodes:}")
+    private String clusterNodes;
+
+    @Value("${spring.redis.cluster.max-redirects:3}")
+    private int clusterMaxRedirects;
+
+    @Value("${spring.redis.pool.max-total:64}")
+    private int poolMaxTotal;
+
+    @Value("${spring.redis.pool.max-idle:64}")
+    private int poolMaxIdle;
+
+    @Value("${spring.redis.pool.min-idle:8}")
+    private int poolMinIdle;
+
+    // How long a caller waits for a free connection before failing
+    @Value("${spring.redis.pool.max-wait-ms:20}")
+    private long poolMaxWaitMs;
+
+    @Value("${spring.redis.connect-timeout-ms:200}")
+    private long connectTimeoutMs;
+
+    @Value("${spring.redis.url-mapping.read-timeout-ms:100}")
+    private long urlMappingReadTimeoutMs;
+
+    @Value("${spring.redis.rate-limit.read-timeout-ms:250}")
+    private long rateLimitReadTimeoutMs;
+
+    // Standalone mode only; defaults to the cache instance
+    @Value("${spring.redis.session.host:${spring.redis.host:localhost}}")
+    private String sessionHost;
+
+    @Value("${spring.redis.session.port:${spring.redis.port:6379}}")
+    private int sessionPort;
+
+    @Value("${spring.redis.session.database:2}")
+    private int sessionDatabase;
+
+    @Value("${spring.redis.session.read-timeout-ms:500}")
+    private long sessionReadTimeoutMs;
+
+    @Value("${spring.redis.circuit-breaker.failure-rate-threshold:0.5}")
+    private double breakerFailureRateThreshold;
+
+    @Value("${spring.redis.circuit-breaker.minimum-calls:20}")
+    private int breakerMinimumCalls;
+
+    @Value("${spring.redis.circuit-breaker.window-ms:10000}")
+    private long breakerWindowMs;
+
+    @Value("${spring.redis.circuit-breaker.open-ms:5000}")
+    private long breakerOpenMs;
+
+    @Value("${spring.redis.circuit-breaker.half-open-probes:3}")
+    private int breakerHalfOpenProbes;
+
+    @Bean(name = "urlMappingRedisConnectionFactory")
+    @Primary
+    public JedisConnectionFactory urlMappingRedisConnectionFactory() {
+        return createConnectionFactory(0, urlMappingReadTimeoutMs, URL_MAPPING_POOL);
+    }
+
+    @Bean(name = "rateLimitRedisConnectionFactory")
+    public JedisConnectionFactory rateLimitRedisConnectionFactory() {
+        return createConnectionFactory(1, rateLimitReadTimeoutMs, RATE_LIMIT_POOL);
+    }
+
+    @Bean(name = "sessionRedisConnectionFactory")
+    public JedisConnectionFactory sessionRedisConnectionFactory() {
+        return createConnectionFactory(sessionHost, sessionPort, sessionDatabase, sessionReadTimeoutMs, SESSION_POOL);
+    }
+
     // Redis DB 0 for URL mappings
     @Bean(name = "urlMappingRedisTemplate")
-    public RedisTemplate<String, Object> urlMappingRedisTemplate() {
-        return createRedisTemplate(0);
+    public RedisTemplate<String, Object> urlMappingRedisTemplate(
+            @Qualifier("urlMappingRedisConnectionFactory") JedisConnectionFactory connectionFactory) {
+        return createRedisTemplate(connectionFactory);
     }
-    
+
     // Redis DB 1 for rate limiting
     @Bean(name = "rateLimitRedisTemplate")
-    public RedisTemplate<String, Object> rateLimitRedisTemplate() {
-        return createRedisTemplate(1);
+    public RedisTemplate<String, Object> rateLimitRedisTemplate(
+            @Qualifier("rateLimitRedisConnectionFactory") JedisConnectionFactory connectionFactory) {
+        return createRedisTemplate(connectionFactory);
     }
-    
-    private RedisTemplate<String, Object> createRedisTemplate(int database) {
-        RedisTemplate<String, Object> template = new RedisTemplate<>();
-        
+
+    // Redis DB 2 (by default) for refresh tokens and shared token rotations; never flushed as a cache
+    @Bean(name = "sessionRedisTemplate")
+    public RedisTemplate<String, Object> sessionRedisTemplate(
+            @Qualifier("sessionRedisConnectionFactory") JedisConnectionFactory connectionFactory) {
+        return createRedisTemplate(connectionFactory);
+    }
+
+    // Lets redirects skip Redis (L1 cache / database) while DB 0 is failing
+    @Bean(name = "urlMappingCircuitBreaker")
+    public CircuitBreaker urlMappingCircuitBreaker() {
+        return createCircuitBreaker("redis-url-mapping");
+    }
+
+    // Lets rate limits fall back to node-local counting while DB 1 is failing
+    @Bean(name = "rateLimitCircuitBreaker")
+    public CircuitBreaker rateLimitCircuitBreaker() {
+        return createCircuitBreaker("redis-rate-limit");
+    }
+
+    private CircuitBreaker createCircuitBreaker(String name) {
+        return new CircuitBreaker(name, breakerFailureRateThreshold, breakerMinimumCalls,
+            breakerWindowMs, breakerOpenMs, breakerHalfOpenProbes);
+    }
+
+    private JedisConnectionFactory createConnectionFactory(int database, long readTimeoutMs, String poolName) {
+        return createConnectionFactory(redisHost, redisPort, database, readTimeoutMs, poolName);
+    }
+
+    private JedisConnectionFactory createConnectionFactory(String host, int port, int database, long readTimeoutMs, String poolName) {
+        JedisClientConfiguration clientConfig = JedisClientConfiguration.builder()
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .readTimeout(Duration.ofMillis(readTimeoutMs))
+            .usePooling()
+            .poolConfig(createPoolConfig(poolName))
+            .build();
+
+        // Lifecycle (start/stop) is managed by the container
+        if (isCluster()) {
+            return new JedisConnectionFactory(createClusterConfig(), clientConfig);
+        }
+
         RedisStandaloneConfiguration redisConfig = new RedisStandaloneConfiguration();
-        redisConfig.setHostName(redisHost);
-        redisConfig.setPort(redisPort);
+        redisConfig.setHostName(host);
+        redisConfig.setPort(port);
         redisConfig.setDatabase(database);
-        
+
         if (redisPassword != null && !redisPassword.isEmpty()) {
             redisConfig.setPassword(redisPassword);
         }
-        
-        JedisConnectionFactory connectionFactory = new JedisConnectionFactory(redisConfig);
-        connectionFactory.afterPropertiesSet();
-        
+
+        return new JedisConnectionFactory(redisConfig, clientConfig);
+    }
+
+    private RedisClusterConfiguration createClusterConfig() {
+        List<String> nodes = new ArrayList<>();
+        for (String node : clusterNodes.split(",")) {
+            if (!node.isBlank()) {
+                nodes.add(node.trim());
+            }
+        }
+        if (nodes.isEmpty()) {
+            throw new IllegalStateException("spring.redis.mode=cluster requires spring.redis.cluster.nodes");
+        }
+
+        RedisClusterConfiguration clusterConfig = new RedisClusterConfiguration(nodes);
+        clusterConfig.setMaxRedirects(clusterMaxRedirects);
+        if (redisPassword != null && !redisPassword.isEmpty()) {
+            clusterConfig.setPassword(redisPassword);
+        }
+        return clusterConfig;
+    }
+
+    private boolean isCluster() {
+        return "cluster".equalsIgnoreCase(redisMode);
+    }
+
+    // In cluster mode every node gets its own pool with these settings
+    private GenericObjectPoolConfig<?> createPoolConfig(String poolName) {
+        GenericObjectPoolConfig<?> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal(poolMaxTotal);
+        poolConfig.setMaxIdle(poolMaxIdle);
+        poolConfig.setMinIdle(poolMinIdle);
+        poolConfig.setBlockWhenExhausted(true);
+        poolConfig.setMaxWait(Duration.ofMillis(poolMaxWaitMs));
+        // Broken connections surface as command errors; no PING per borrow on the hot path
+        poolConfig.setTestOnBorrow(false);
+        poolConfig.setTestWhileIdle(true);
+        poolConfig.setTimeBetweenEvictionRuns(Duration.ofSeconds(30));
+        poolConfig.setJmxEnabled(true);
+        poolConfig.setJmxNamePrefix(poolName);
+        return poolConfig;
+    }
+
+    private RedisTemplate<String, Object> createRedisTemplate(JedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
         template.setValueSerializer(new StringRedisSerializer());
@@ -54,7 +255,7 @@ public class RedisConfig {
         template.setHashValueSerializer(new StringRedisSerializer());
         template.setDefaultSerializer(new StringRedisSerializer());
         template.afterPropertiesSet();
-        
+
         return template;
     }
-}
\ No newline at end of file
+}
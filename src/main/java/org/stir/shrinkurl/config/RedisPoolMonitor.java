@@ -0,0 +1,108 @@
+package org.stir.shrinkurl.config;
+
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pool usage and failure counters for the Redis connection pools.
+ *
+ * Pool gauges are read from the commons-pool JMX beans registered by
+ * {@link RedisConfig}; callers that swallow Redis errors report them through
+ * {@link #recordFailure(Throwable)} so pool exhaustion and read timeouts can
+ * be told apart from other failures.
+ */
+@Component
+@Slf4j
+public class RedisPoolMonitor {
+
+    private static final String POOL_MBEAN_PATTERN = "org.apache.commons.pool2:type=GenericObjectPool,name=%s*";
+
+    private final LongAdder poolExhausted = new LongAdder();
+    private final LongAdder readTimeouts = new LongAdder();
+    private final LongAdder otherFailures = new LongAdder();
+
+    /**
+     * Classify a Redis failure: no free pooled connection within the max wait,
+     * a read that hit its timeout, or anything else
+     */
+    public void recordFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NoSuchElementException) {
+                poolExhausted.increment();
+                return;
+            }
+            if (cause instanceof SocketTimeoutException) {
+                readTimeouts.increment();
+                return;
+            }
+        }
+        otherFailures.increment();
+    }
+
+    /**
+     * Snapshot of pool gauges and failure counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("url_mapping_pool", poolStats(RedisConfig.URL_MAPPING_POOL));
+        stats.put("rate_limit_pool", poolStats(RedisConfig.RATE_LIMIT_POOL));
+        stats.put("session_pool", poolStats(RedisConfig.SESSION_POOL));
+        stats.put("pool_exhausted_failures", poolExhausted.sum());
+        stats.put("read_timeouts", readTimeouts.sum());
+        stats.put("other_failures", otherFailures.sum());
+        return stats;
+    }
+
+    private Map<String, Object> poolStats(String poolName) {
+        Map<String, Object> stats = new HashMap<>();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = server.queryNames(new ObjectName(String.format(POOL_MBEAN_PATTERN, poolName)), null);
+            if (names.isEmpty()) {
+                // Factory not started yet
+                stats.put("registered", false);
+                return stats;
+            }
+
+            // Cluster mode registers one pool per node; report their totals
+            long active = 0, idle = 0, waiters = 0, maxTotal = 0, borrowed = 0, created = 0, destroyed = 0;
+            long maxBorrowWait = 0;
+            for (ObjectName name : names) {
+                active += ((Number) server.getAttribute(name, "NumActive")).longValue();
+                idle += ((Number) server.getAttribute(name, "NumIdle")).longValue();
+                waiters += ((Number) server.getAttribute(name, "NumWaiters")).longValue();
+                maxTotal += ((Number) server.getAttribute(name, "MaxTotal")).longValue();
+                borrowed += ((Number) server.getAttribute(name, "BorrowedCount")).longValue();
+                created += ((Number) server.getAttribute(name, "CreatedCount")).longValue();
+                destroyed += ((Number) server.getAttribute(name, "DestroyedCount")).longValue();
+                maxBorrowWait = Math.max(maxBorrowWait, ((Number) server.getAttribute(name, "MaxBorrowWaitTimeMillis")).longValue());
+            }
+            stats.put("registered", true);
+            stats.put("pools", names.size());
+            stats.put("active", active);
+            stats.put("idle", idle);
+            stats.put("waiters", waiters);
+            stats.put("max_total", maxTotal);
+            stats.put("borrowed", borrowed);
+            stats.put("created", created);
+            stats.put("destroyed", destroyed);
+            stats.put("max_borrow_wait_ms", maxBorrowWait);
+        } catch (Exception e) {
+            log.debug("Failed to read pool stats for {}: {}", poolName, e.getMessage());
+            stats.put("error", e.getMessage());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,175 @@
+package org.stir.shrinkurl.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watches replication lag on the read replica and decides whether read-only
+ * connections may come from it.
+ *
+ * Every check interval it runs {@code SHOW REPLICA STATUS} on the replica.
+ * Reads go to the primary while the replica is more than the allowed lag
+ * behind, while replication is stopped, or while the replica cannot be
+ * reached. If the lag cannot be read (e.g. the user lacks REPLICATION CLIENT),
+ * the replica is trusted; code paths that must see their own recent writes
+ * re-read from the primary themselves.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final DataSource replicaDataSource;
+
+    @Value("${spring.datasource.replica.max-lag-seconds:2}")
+    private long maxLagSeconds;
+
+    @Value("${spring.datasource.replica.lag-check-interval-ms:2000}")
+    private long checkIntervalMs;
+
+    private volatile boolean usable = true;
+    private volatile Long lastLagSeconds;
+    private volatile String lastError;
+    private volatile boolean lagUnreadableLogged;
+
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder primaryFallbacks = new LongAdder();
+
+    private ScheduledExecutorService checker;
+
+    ReplicaLagMonitor(DataSource replicaDataSource) {
+        this.replicaDataSource = replicaDataSource;
+    }
+
+    @PostConstruct
+    public void init() {
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::check, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Read replica enabled, max lag {}s", maxLagSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checker.shutdownNow();
+    }
+
+    /**
+     * Data source for read-only connections: the replica while it is usable,
+     * otherwise (or if it cannot hand out a connection) the primary
+     */
+    DataSource routing(DataSource primaryDataSource, DataSource replica) {
+        return new DelegatingDataSource(replica) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (usable) {
+                    try {
+                        Connection connection = replica.getConnection();
+                        replicaConnections.increment();
+                        return connection;
+                    } catch (SQLException e) {
+                        markUnusable("connection failed: " + e.getMessage());
+                    }
+                }
+                primaryFallbacks.increment();
+                return primaryDataSource.getConnection();
+            }
+        };
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    /**
+     * Snapshot of replica routing state for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("replica_usable", usable);
+        stats.put("lag_seconds", lastLagSeconds);
+        stats.put("max_lag_seconds", maxLagSeconds);
+        stats.put("last_error", lastError);
+        stats.put("replica_connections", replicaConnections.sum());
+        stats.put("primary_fallbacks", primaryFallbacks.sum());
+        return stats;
+    }
+
+    private void check() {
+        try (Connection connection = replicaDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            Long lag = readLag(statement);
+            lastLagSeconds = lag;
+            lastError = null;
+            if (lag == null) {
+                markUnusable("replication is not running");
+            } else if (lag > maxLagSeconds) {
+                markUnusable("lag " + lag + "s");
+            } else if (!usable) {
+                usable = true;
+                log.info("Read replica usable again (lag {}s)", lag);
+            }
+        } catch (SQLException e) {
+            markUnusable("lag check failed: " + e.getMessage());
+        } catch (Exception e) {
+            log.warn("Replica lag check failed", e);
+        }
+    }
+
+    /**
+     * Seconds behind the primary; null when replication is stopped, 0 when
+     * the lag cannot be read
+     */
+    private Long readLag(Statement statement) {
+        try (ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                // Not configured as a replica: nothing to lag behind
+                return 0L;
+            }
+            long lag = rs.getLong(lagColumn(rs));
+            return rs.wasNull() ? null : lag;
+        } catch (SQLException e) {
+            if (!lagUnreadableLogged) {
+                lagUnreadableLogged = true;
+                log.warn("Cannot read replica lag, trusting the replica: {}", e.getMessage());
+            }
+            return 0L;
+        }
+    }
+
+    private static String lagColumn(ResultSet rs) throws SQLException {
+        // MySQL 8.0.22 renamed Seconds_Behind_Master
+        try {
+            rs.findColumn("Seconds_Behind_Source");
+            return "Seconds_Behind_Source";
+        } catch (SQLException e) {
+            return "Seconds_Behind_Master";
+        }
+    }
+
+    private void markUnusable(String reason) {
+        lastError = reason;
+        if (usable) {
+            usable = false;
+            log.warn("Read replica not used: {}", reason);
+        }
+    }
+}
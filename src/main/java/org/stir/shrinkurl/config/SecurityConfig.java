@@ -3,8 +3,11 @@ package org.stir.shrinkurl.config;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -14,11 +17,25 @@ import org.stir.shrinkurl.filter.JWTAuthenticationFilter;
 
 @Configuration
 @EnableWebSecurity
+@EnableMethodSecurity // Enforces the controllers' @PreAuthorize
 public class SecurityConfig {
 
     @Autowired
     private JWTAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private PublicRoutes publicRoutes;
+
+    /**
+     * Redirects and static assets bypass the security filter chain entirely:
+     * they are anonymous, and on the redirect path the chain's per-request
+     * work (security context, headers, request cache) dominates a cache hit
+     */
+    @Bean
+    public WebSecurityCustomizer publicFastPath() {
+        return web -> web.ignoring().requestMatchers(publicRoutes::isFastPath);
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -27,7 +44,13 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/login", "/register", "/auth/**", "/analytics/**").permitAll()
                 .requestMatchers("/css/**", "/js/**", "/images/**").permitAll()
+                // Redirects, when the fast path is turned off
+                .requestMatchers(publicRoutes::isPublic).permitAll()
                 .requestMatchers("/error/**").permitAll()
+                // Load balancer probes; only health is exposed over HTTP
+                .requestMatchers("/actuator/health/**").permitAll()
+                // Debug POSTs do bulk work (re-cache, memory benchmark); reads stay open
+                .requestMatchers(HttpMethod.POST, "/api/debug/**").hasRole("ADMIN")
                 .requestMatchers("/api/debug/**").permitAll()
                 .requestMatchers("/api/admin/verify/**").permitAll()
                 .requestMatchers("/api/test/**").permitAll()
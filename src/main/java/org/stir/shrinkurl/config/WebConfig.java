@@ -0,0 +1,29 @@
+package org.stir.shrinkurl.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.stir.shrinkurl.service.UserSnapshotCache;
+
+/**
+ * MVC customisations. Ordered first so {@link AuthenticatedUserArgumentResolver}
+ * is consulted before Spring Security's {@code @AuthenticationPrincipal}
+ * resolver, which would pass null for a {@code User} parameter.
+ */
+@Configuration
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new AuthenticatedUserArgumentResolver(userSnapshotCache));
+    }
+}
@@ -50,18 +50,28 @@ public class AnalyticsPageController {
             Url url = urlOpt.get();
             List<UrlAnalytics> analytics = urlService.getUrlAnalytics(id, days);
             
+            // Clicks not flushed yet; after a failed flush some may belong to earlier days
+            java.time.LocalDate today = java.time.LocalDate.now();
+            int pendingClicks = (int) urlService.getPendingClicks(url.getShortCode());
+            int pendingToday = (int) urlService.getPendingClicks(url.getShortCode(), today);
+            boolean lastIsToday = !analytics.isEmpty()
+                && analytics.get(analytics.size() - 1).getClickDate().equals(today);
+            
             // Calculate additional statistics
-            int totalClicks = url.getClickCount();
-            int analyticsClicks = analytics.stream().mapToInt(UrlAnalytics::getClickCount).sum();
+            int totalClicks = url.getClickCount() + pendingClicks;
+            int analyticsClicks = analytics.stream().mapToInt(UrlAnalytics::getClickCount).sum() + pendingClicks;
             
             // Calculate last 7 days clicks (take the last 7 entries since now ordered ASC)
             int last7DaysClicks = analytics.stream()
                 .skip(Math.max(0, analytics.size() - 7))
                 .mapToInt(UrlAnalytics::getClickCount)
-                .sum();
+                .sum() + pendingClicks;
             
             // Calculate today's clicks (last entry in analytics for ASC order)
             int todaysClicks = analytics.size() > 0 ? analytics.get(analytics.size() - 1).getClickCount() : 0;
+            if (pendingToday > 0) {
+                todaysClicks = (lastIsToday ? todaysClicks : 0) + pendingToday;
+            }
             
             // Prepare data for charts with proper date formatting
             List<String> dates = analytics.stream()
@@ -71,6 +81,15 @@ public class AnalyticsPageController {
                 .map(UrlAnalytics::getClickCount)
                 .collect(Collectors.toList());
             
+            if (pendingClicks > 0) {
+                if (lastIsToday) {
+                    clicks.set(clicks.size() - 1, clicks.get(clicks.size() - 1) + pendingClicks);
+                } else {
+                    dates.add(java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("dd MMM")));
+                    clicks.add(pendingClicks);
+                }
+            }
+            
             // Convert to JSON strings for JavaScript
             String datesJson = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(dates);
             String clicksJson = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(clicks);
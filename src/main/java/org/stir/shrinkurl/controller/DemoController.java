@@ -61,7 +61,7 @@ public class DemoController {
         response.put("customCode", customCode);
         response.put("isValid", isValid);
         response.put("length", customCode.length());
-        response.put("rules", "3-20 characters, alphanumeric only");
+        response.put("rules", "3-20 characters except 7 (reserved for generated codes), alphanumeric only");
         
         return response;
     }
@@ -72,15 +72,15 @@ public class DemoController {
     @GetMapping("/algorithm-info")
     public Map<String, Object> getAlgorithmInfo() {
         Map<String, Object> info = new HashMap<>();
-        info.put("algorithm", "CRC32 Hash + Base62 Encoding");
+        info.put("algorithm", "Leased sequence blocks + keyed scrambling + Base62 Encoding");
         info.put("characters", "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ");
-        info.put("minLength", 6);
-        info.put("collisionHandling", "Salt-based retry with attempt counter");
+        info.put("length", UrlShortenerUtil.SEQUENCE_CODE_LENGTH);
+        info.put("collisionHandling", "None needed: every sequence number is issued once");
         info.put("cacheStorage", "Redis DB 0");
         info.put("rateLimitStorage", "Redis DB 1");
         info.put("features", new String[]{
-            "Deterministic short codes",
-            "Collision detection",
+            "Non-sequential short codes",
+            "No existence checks on creation",
             "Premium custom codes",
             "Analytics tracking",
             "Subscription-based limits"
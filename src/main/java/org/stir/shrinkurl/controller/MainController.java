@@ -10,6 +10,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.stir.shrinkurl.dto.AuthenticatedUser;
 import org.stir.shrinkurl.dto.UrlShortenRequest;
 import org.stir.shrinkurl.entity.Url;
 import org.stir.shrinkurl.entity.User;
@@ -27,9 +28,9 @@ public class MainController {
     @GetMapping("/")
     public String home(Model model, Authentication authentication) {
         if (authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
-            User user = (User) authentication.getPrincipal();
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
 
-            // To display user name at top
+            // To display user name at top (from the token, no user lookup)
             model.addAttribute("user", user);
 
             // For getting URL shortening request
@@ -0,0 +1,140 @@
+package org.stir.shrinkurl.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.stir.shrinkurl.cache.CacheRefreshPolicy;
+import org.stir.shrinkurl.cache.CircuitBreaker;
+import org.stir.shrinkurl.cache.LocalUrlCache;
+import org.stir.shrinkurl.cache.UrlMappingStore;
+import org.stir.shrinkurl.config.DatabasePoolMonitor;
+import org.stir.shrinkurl.config.RedisPoolMonitor;
+import org.stir.shrinkurl.config.ReplicaLagMonitor;
+import org.stir.shrinkurl.runner.CacheWarmupRunner;
+import org.stir.shrinkurl.service.ClickTrackingService;
+import org.stir.shrinkurl.service.LocalRateLimiter;
+import org.stir.shrinkurl.service.RateLimitService;
+import org.stir.shrinkurl.service.ShortCodeAllocator;
+import org.stir.shrinkurl.service.ShortCodeFilter;
+import org.stir.shrinkurl.service.TokenRefreshService;
+import org.stir.shrinkurl.service.UrlExpirySweeper;
+import org.stir.shrinkurl.service.UrlService;
+import org.stir.shrinkurl.service.UserSnapshotCache;
+import org.stir.shrinkurl.utils.JwtUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/debug")
+public class MetricsDebugController {
+
+    @Autowired
+    private LocalUrlCache localUrlCache;
+
+    @Autowired
+    private ClickTrackingService clickTrackingService;
+
+    @Autowired
+    private LocalRateLimiter localRateLimiter;
+
+    @Autowired
+    private ShortCodeAllocator shortCodeAllocator;
+
+    @Autowired
+    private ShortCodeFilter shortCodeFilter;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private CacheRefreshPolicy cacheRefreshPolicy;
+
+    @Autowired
+    private UrlMappingStore urlMappingStore;
+
+    @Autowired
+    private CacheWarmupRunner cacheWarmupRunner;
+
+    @Autowired
+    private RedisPoolMonitor redisPoolMonitor;
+
+    @Autowired
+    @Qualifier("urlMappingCircuitBreaker")
+    private CircuitBreaker urlMappingCircuitBreaker;
+
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Autowired
+    private UrlExpirySweeper urlExpirySweeper;
+
+    @Autowired
+    private DatabasePoolMonitor databasePoolMonitor;
+
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenRefreshService tokenRefreshService;
+
+    // Only present when a read replica is configured
+    @Autowired(required = false)
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    /**
+     * In-process counters for the redirect path
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("url_local_cache", localUrlCache.getStats());
+        response.put("click_tracking", clickTrackingService.getStats());
+        response.put("global_rate_limit_local", localRateLimiter.getStats());
+        response.put("short_code_allocator", shortCodeAllocator.getStats());
+        response.put("short_code_filter", shortCodeFilter.getStats());
+        response.put("url_database_loads", urlService.getDatabaseLoadStats());
+        response.put("url_cache_refresh", cacheRefreshPolicy.getStats());
+        response.put("url_mapping_store", urlMappingStore.getStats());
+        response.put("url_cache_warmup", cacheWarmupRunner.getStats());
+        response.put("redis_pools", redisPoolMonitor.getStats());
+        response.put("url_expiry_sweeper", urlExpirySweeper.getStats());
+        response.put("database_pools", databasePoolMonitor.getStats());
+        response.put("user_snapshot_cache", userSnapshotCache.getStats());
+        response.put("jwt_verified_cache", jwtUtil.getVerifiedCacheStats());
+        response.put("token_refresh", tokenRefreshService.getStats());
+
+        Map<String, Object> breakers = new HashMap<>();
+        breakers.put("url_mapping", urlMappingCircuitBreaker.getStats());
+        breakers.put("rate_limit", rateLimitService.getFallbackStats());
+        response.put("redis_circuit_breakers", breakers);
+        if (replicaLagMonitor != null) {
+            response.put("database_read_replica", replicaLagMonitor.getStats());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Readiness probe: 503 until startup work such as the cache warm-up is done
+     */
+    @GetMapping("/readiness")
+    public ResponseEntity<Map<String, Object>> readiness() {
+        ReadinessState state = applicationAvailability.getReadinessState();
+        Map<String, Object> response = new HashMap<>();
+        response.put("readiness", state);
+        HttpStatus status = state == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(response);
+    }
+}
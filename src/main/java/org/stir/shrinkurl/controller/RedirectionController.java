@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.view.RedirectView;
 import org.stir.shrinkurl.annotation.RateLimit;
+import org.stir.shrinkurl.enums.RateLimitAlgorithm;
 import org.stir.shrinkurl.service.UrlService;
 
 import java.util.Optional;
@@ -22,7 +23,7 @@ public class RedirectionController {
      * Handle URL redirection
      */
     @GetMapping("/{shortCode}")
-    @RateLimit(value = 200, timeWindow = 60, perUser = false, key = "redirect")
+    @RateLimit(value = 200, timeWindow = 60, perUser = false, key = "redirect", algorithm = RateLimitAlgorithm.SLIDING_COUNTER)
     public ResponseEntity<?> redirectToOriginalUrl(@PathVariable String shortCode) {
         try {
             Optional<String> originalUrl = urlService.resolveUrl(shortCode);
@@ -4,15 +4,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.stir.shrinkurl.annotation.RateLimit;
+import org.stir.shrinkurl.cache.UrlMappingStore;
 import org.stir.shrinkurl.service.RateLimitService;
+import org.stir.shrinkurl.service.UrlService;
 
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +40,14 @@ public class RedisDebugController {
     @Autowired
     private RateLimitService rateLimitService;
     
+    @Autowired
+    private UrlService urlService;
+    
+    @Autowired
+    private UrlMappingStore urlMappingStore;
+    
+    private static final int MAX_LISTED_MAPPINGS = 100;
+    
     /**
      * Check if Redis is working and show URL mappings
      */
@@ -45,23 +60,12 @@ public class RedisDebugController {
             urlMappingRedisTemplate.opsForValue().set("connection_test", "OK", 1, TimeUnit.SECONDS);
             response.put("redis_connection", "OK");
             
-            // Get all URL keys
-            Set<String> urlKeys = urlMappingRedisTemplate.keys("url:*");
-            response.put("total_url_mappings", urlKeys != null ? urlKeys.size() : 0);
+            // Get URL mappings (values may be binary, so read them through the store)
+            response.put("total_url_mappings", urlMappingStore.countMappings());
             
             Map<String, Object> urlMappings = new HashMap<>();
-            if (urlKeys != null) {
-                for (String key : urlKeys) {
-                    String originalUrl = (String) urlMappingRedisTemplate.opsForValue().get(key);
-                    Long ttl = urlMappingRedisTemplate.getExpire(key);
-                    
-                    Map<String, Object> urlData = new HashMap<>();
-                    urlData.put("original_url", originalUrl);
-                    urlData.put("ttl_seconds", ttl);
-                    urlData.put("expires_in", ttl != null && ttl > 0 ? ttl + " seconds" : "No expiration");
-                    
-                    urlMappings.put(key, urlData);
-                }
+            for (String shortCode : urlMappingStore.listCodes(MAX_LISTED_MAPPINGS)) {
+                urlMappings.put(shortCode, urlMappingStore.describe(shortCode));
             }
             
             response.put("url_mappings", urlMappings);
@@ -146,23 +150,8 @@ public class RedisDebugController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            String key = "url:" + shortCode;
-            String originalUrl = (String) urlMappingRedisTemplate.opsForValue().get(key);
-            Long ttl = urlMappingRedisTemplate.getExpire(key);
-            
             response.put("short_code", shortCode);
-            response.put("redis_key", key);
-            response.put("original_url", originalUrl);
-            response.put("ttl_seconds", ttl);
-            response.put("found_in_redis", originalUrl != null);
-            
-            if (ttl != null && ttl > 0) {
-                response.put("expires_in", ttl + " seconds");
-            } else if (ttl == -1) {
-                response.put("expires_in", "No expiration");
-            } else {
-                response.put("expires_in", "Expired");
-            }
+            response.putAll(urlMappingStore.describe(shortCode));
             
             response.put("status", "success");
             
@@ -202,6 +191,57 @@ public class RedisDebugController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Re-cache every live URL mapping with pipelined writes, e.g. after a Redis failover
+     */
+    @PostMapping("/redis/recache")
+    @PreAuthorize("hasRole('ADMIN')")
+    @RateLimit(value = 1, timeWindow = 60, perUser = false, key = "debug_redis_recache", message = "Bulk re-cache already requested recently")
+    public ResponseEntity<Map<String, Object>> recacheUrlMappings(@RequestParam(defaultValue = "1000") int batchSize) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            response.putAll(urlService.recacheActiveMappings(Math.max(1, Math.min(batchSize, 10000))));
+            response.put("status", "success");
+            
+        } catch (Exception e) {
+            log.error("Bulk URL re-cache failed", e);
+            response.put("status", "error");
+            response.put("error", e.getMessage());
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Measure Redis memory per URL mapping for each value format and layout,
+     * extrapolated per million mappings; uses scratch keys that are removed afterwards
+     */
+    @PostMapping("/redis/mapping-memory")
+    @PreAuthorize("hasRole('ADMIN')")
+    @RateLimit(value = 1, timeWindow = 60, perUser = false, key = "debug_redis_mapping_memory", message = "Memory measurement already requested recently")
+    public ResponseEntity<Map<String, Object>> measureMappingMemory(
+            @RequestParam(defaultValue = "10000") int sampleSize,
+            @RequestParam(defaultValue = "10000000") long assumedMappings) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            List<String> sampleUrls = urlService.sampleOriginalUrls(1000);
+            if (sampleUrls.isEmpty()) {
+                sampleUrls = List.of("https://www.example.com/articles/2024/how-we-cut-redis-memory?utm_source=newsletter");
+            }
+            response.putAll(urlMappingStore.measureMemory(sampleUrls, Math.max(100, Math.min(sampleSize, 100000)), assumedMappings));
+            response.put("status", "success");
+            
+        } catch (Exception e) {
+            log.error("Mapping memory measurement failed", e);
+            response.put("status", "error");
+            response.put("error", e.getMessage());
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Redis health check
      */
@@ -106,7 +106,7 @@ public class UrlController {
             UrlAnalyticsResponse response = new UrlAnalyticsResponse(
                 urlOpt.get().getShortCode(),
                 urlOpt.get().getOriginalUrl(),
-                urlOpt.get().getClickCount(),
+                (int) urlService.getLiveClickCount(urlOpt.get()),
                 analytics
             );
             
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.stir.shrinkurl.cache.UrlMappingStore;
 import org.stir.shrinkurl.service.RateLimitService;
 
 import lombok.extern.slf4j.Slf4j;
@@ -30,6 +31,9 @@ public class VerificationController {
     @Autowired
     private RateLimitService rateLimitService;
     
+    @Autowired
+    private UrlMappingStore urlMappingStore;
+    
     /**
      * Comprehensive verification endpoint
      */
@@ -74,22 +78,21 @@ public class VerificationController {
             String shortCode = "test_" + System.currentTimeMillis();
             
             // Store in Redis manually for testing
-            String redisKey = "url:" + shortCode;
-            urlMappingRedisTemplate.opsForValue().set(redisKey, testUrl);
+            urlMappingStore.put(shortCode, testUrl, null);
             
             // Verify storage
-            String storedUrl = (String) urlMappingRedisTemplate.opsForValue().get(redisKey);
-            Long ttl = urlMappingRedisTemplate.getExpire(redisKey);
+            UrlMappingStore.CachedMapping mapping = urlMappingStore.get(shortCode);
+            String storedUrl = mapping != null ? mapping.getOriginalUrl() : null;
             
             response.put("short_code", shortCode);
             response.put("original_url", testUrl);
             response.put("stored_url", storedUrl);
             response.put("storage_successful", testUrl.equals(storedUrl));
-            response.put("ttl_seconds", ttl);
-            response.put("redis_key", redisKey);
+            response.put("ttl_seconds", mapping != null ? mapping.getRemainingMillis() / 1000 : null);
+            response.put("storage", urlMappingStore.describe(shortCode));
             
             // Clean up
-            urlMappingRedisTemplate.delete(redisKey);
+            urlMappingStore.delete(shortCode);
             
             response.put("status", "success");
             
@@ -159,8 +162,7 @@ public class VerificationController {
         
         try {
             // URL mappings statistics
-            Set<String> urlKeys = urlMappingRedisTemplate.keys("url:*");
-            response.put("total_url_mappings", urlKeys != null ? urlKeys.size() : 0);
+            response.put("total_url_mappings", urlMappingStore.countMappings());
             
             // Rate limiting statistics
             Set<String> rateLimitKeys = rateLimitRedisTemplate.keys("rate_limit:*");
@@ -213,29 +215,14 @@ public class VerificationController {
         Map<String, Object> status = new HashMap<>();
         
         try {
-            Set<String> urlKeys = urlMappingRedisTemplate.keys("url:*");
-            status.put("total_count", urlKeys != null ? urlKeys.size() : 0);
+            status.put("total_count", urlMappingStore.countMappings());
             
-            if (urlKeys != null && !urlKeys.isEmpty()) {
-                // Sample a few URLs to verify
-                int sampleSize = Math.min(3, urlKeys.size());
-                Map<String, Object> samples = new HashMap<>();
-                
-                int count = 0;
-                for (String key : urlKeys) {
-                    if (count >= sampleSize) break;
-                    
-                    String url = (String) urlMappingRedisTemplate.opsForValue().get(key);
-                    Long ttl = urlMappingRedisTemplate.getExpire(key);
-                    
-                    Map<String, Object> sample = new HashMap<>();
-                    sample.put("url", url);
-                    sample.put("ttl", ttl);
-                    
-                    samples.put(key, sample);
-                    count++;
-                }
-                
+            // Sample a few URLs to verify
+            Map<String, Object> samples = new HashMap<>();
+            for (String shortCode : urlMappingStore.listCodes(3)) {
+                samples.put(shortCode, urlMappingStore.describe(shortCode));
+            }
+            if (!samples.isEmpty()) {
                 status.put("samples", samples);
             }
             
@@ -0,0 +1,46 @@
+package org.stir.shrinkurl.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+/**
+ * Security principal for JWT-authenticated requests, built from the access
+ * token's claims without touching the database. Controllers that need the
+ * {@link org.stir.shrinkurl.entity.User} take it as an
+ * {@code @AuthenticationPrincipal User} parameter instead.
+ */
+public class AuthenticatedUser {
+
+    private final Long id;
+    private final String email;
+    private final String name;
+    private final List<String> roles;
+
+    public AuthenticatedUser(Long id, String email, String name, List<String> roles) {
+        this.id = id;
+        this.email = email;
+        this.name = name;
+        this.roles = roles != null ? List.copyOf(roles) : Collections.emptyList();
+    }
+
+    public static AuthenticatedUser fromToken(DecodedJWT token) {
+        return new AuthenticatedUser(
+            token.getClaim("userId").asLong(),
+            token.getClaim("email").asString(),
+            token.getClaim("name").asString(),
+            token.getClaim("roles").asList(String.class));
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public String getName() { return name; }
+    public List<String> getRoles() { return roles; }
+
+    // Used by Authentication#getName()
+    @Override
+    public String toString() {
+        return email;
+    }
+}
@@ -0,0 +1,24 @@
+package org.stir.shrinkurl.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Named sequence from which nodes lease blocks of short-code numbers
+ */
+@Entity
+@Table(name = "short_code_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShortCodeSequence {
+    
+    @Id
+    @Column(name = "name", length = 50)
+    private String name;
+    
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+}
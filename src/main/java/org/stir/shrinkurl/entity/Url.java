@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "urls")
+@Table(name = "urls", indexes = {
+    @Index(name = "idx_url_click_count", columnList = "click_count,id"),
+    @Index(name = "idx_url_last_clicked", columnList = "last_clicked_at,id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,7 +24,9 @@ public class Url {
     @Column(name = "original_url", nullable = false, length = 2000)
     private String originalUrl;
     
-    @Column(name = "short_code", nullable = false, unique = true, length = 10)
+    // Base62 codes differ by case only, so the unique index must compare bytes, not the case-insensitive default
+    @Column(name = "short_code", nullable = false, unique = true, length = 10,
+            columnDefinition = "varchar(10) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin")
     private String shortCode;
     
     @Column(name = "user_id", nullable = false)
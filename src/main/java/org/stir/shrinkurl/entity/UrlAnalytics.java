@@ -14,7 +14,8 @@ import java.time.LocalDate;
 @Table(name = "url_analytics", indexes = {
     @Index(name = "idx_analytics_url", columnList = "url_id"),
     @Index(name = "idx_analytics_date", columnList = "click_date"),
-    @Index(name = "idx_analytics_url_date", columnList = "url_id, click_date")
+    // One row per URL and day; click flushes upsert into it (UrlAnalyticsRepository.addClicks)
+    @Index(name = "idx_analytics_url_date", columnList = "url_id, click_date", unique = true)
 })
 @Data
 @NoArgsConstructor
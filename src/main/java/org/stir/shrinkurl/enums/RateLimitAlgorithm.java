@@ -0,0 +1,8 @@
+package org.stir.shrinkurl.enums;
+
+public enum RateLimitAlgorithm {
+    FIXED_WINDOW,     // Counter reset every window; allows bursts across a boundary
+    SLIDING_LOG,      // Timestamp per request; exact, memory grows with the limit
+    SLIDING_COUNTER,  // Weighted current + previous window; approximate, O(1) memory
+    TOKEN_BUCKET      // Continuous refill; smooths bursts up to the limit
+}
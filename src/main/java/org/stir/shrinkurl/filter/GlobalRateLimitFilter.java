@@ -1,15 +1,29 @@
 package org.stir.shrinkurl.filter;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.RequestPath;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.stir.shrinkurl.annotation.RateLimit;
+import org.stir.shrinkurl.config.PublicRoutes;
+import org.stir.shrinkurl.service.LocalRateLimiter;
+import org.stir.shrinkurl.service.RateLimitContext;
 import org.stir.shrinkurl.service.RateLimitService;
+import org.stir.shrinkurl.utils.RateLimitKeyUtil;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -34,6 +48,26 @@ public class GlobalRateLimitFilter extends OncePerRequestFilter {
     @Value("${rate-limit.global.requests-per-hour:10000}")
     private int globalRequestsPerHour;
     
+    @Autowired
+    private LocalRateLimiter localRateLimiter;
+    
+    @Value("${rate-limit.global.local.enabled:true}")
+    private boolean localPreFilterEnabled;
+    
+    @Autowired
+    private RateLimitKeyUtil rateLimitKeyUtil;
+    
+    @Autowired
+    @Lazy
+    @Qualifier("requestMappingHandlerMapping")
+    private HandlerMapping handlerMapping;
+    
+    @Autowired
+    private PublicRoutes publicRoutes;
+    
+    // Every short code redirect dispatches to the same controller method
+    private volatile HandlerMethod redirectHandler;
+    
     @Override
     protected void doFilterInternal(
             @NonNull HttpServletRequest request, 
@@ -45,23 +79,103 @@ public class GlobalRateLimitFilter extends OncePerRequestFilter {
             return;
         }
         
-        String clientIp = getClientIpAddress(request);
+        String clientIp = rateLimitKeyUtil.getClientIpAddress(request);
         
-        // Check per-minute limit
-        if (!rateLimitService.isGloballyAllowed(clientIp + ":minute", globalRequestsPerMinute, 60)) {
-            sendRateLimitResponse(request, response, "Global rate limit exceeded (per minute)");
+        // Resolve the handler's own @RateLimit so both limits are evaluated in one Redis call
+        RateLimit endpointLimit = findEndpointLimit(request);
+        String endpointKey = endpointLimit != null ? rateLimitKeyUtil.buildRateLimitKey(request, endpointLimit) : null;
+        
+        if (localPreFilterEnabled) {
+            // Decided in memory for most requests; syncs with Redis periodically or near the limit
+            LocalRateLimiter.Decision decision = endpointLimit != null
+                ? localRateLimiter.tryAcquire(clientIp, endpointKey, endpointLimit)
+                : new LocalRateLimiter.Decision(localRateLimiter.tryAcquire(clientIp), null);
+            if (decision.getRejection() != null) {
+                sendRateLimitResponse(request, response, decision.getRejection());
+                return;
+            }
+            bindEndpointStatus(request, endpointLimit, decision.getEndpointStatus());
+            filterChain.doFilter(request, response);
             return;
         }
         
-        // Check per-hour limit
-        if (!rateLimitService.isGloballyAllowed(clientIp + ":hour", globalRequestsPerHour, 3600)) {
-            sendRateLimitResponse(request, response, "Global rate limit exceeded (per hour)");
+        List<RateLimitService.WindowLimit> windows = Arrays.asList(
+            RateLimitService.WindowLimit.global(clientIp, "minute", globalRequestsPerMinute, 60),
+            RateLimitService.WindowLimit.global(clientIp, "hour", globalRequestsPerHour, 3600)
+        );
+        
+        boolean allowed;
+        List<RateLimitService.RateLimitStatus> windowStatuses;
+        RateLimitService.RateLimitStatus endpointStatus = null;
+        if (endpointLimit != null) {
+            RateLimitService.RequestLimitStatus status = rateLimitService.checkRequest(windows, 0, true, endpointKey, endpointLimit);
+            allowed = status.isGlobalAllowed();
+            windowStatuses = status.getGlobalWindows();
+            endpointStatus = status.getEndpoint();
+        } else {
+            RateLimitService.MultiWindowStatus status = rateLimitService.checkWindows(windows, 0, true);
+            allowed = status.isAllowed();
+            windowStatuses = status.getWindows();
+        }
+        
+        if (!allowed) {
+            boolean minuteExceeded = windowStatuses.get(0).getCurrentCount() >= globalRequestsPerMinute;
+            sendRateLimitResponse(request, response, minuteExceeded
+                ? "Global rate limit exceeded (per minute)"
+                : "Global rate limit exceeded (per hour)");
             return;
         }
         
+        bindEndpointStatus(request, endpointLimit, endpointStatus);
         filterChain.doFilter(request, response);
     }
     
+    private void bindEndpointStatus(HttpServletRequest request, RateLimit endpointLimit, RateLimitService.RateLimitStatus status) {
+        if (endpointLimit != null && status != null) {
+            RateLimitContext.bind(request, new RateLimitContext(endpointLimit, status));
+        }
+    }
+    
+    /**
+     * Look up the @RateLimit on the controller method this request will be
+     * dispatched to, or null if there is none. Public routes skip the handler
+     * mapping: static assets have no controller method, and redirects reuse
+     * the handler resolved for the first one.
+     */
+    private RateLimit findEndpointLimit(HttpServletRequest request) {
+        HandlerMethod handler;
+        if (publicRoutes.isPublic(request)) {
+            if (!publicRoutes.isRedirect(request)) {
+                return null;
+            }
+            handler = redirectHandler;
+            if (handler == null) {
+                handler = resolveHandler(request);
+                redirectHandler = handler;
+            }
+        } else {
+            handler = resolveHandler(request);
+        }
+        return handler != null ? handler.getMethodAnnotation(RateLimit.class) : null;
+    }
+    
+    private HandlerMethod resolveHandler(HttpServletRequest request) {
+        Object previousPath = request.getAttribute(ServletRequestPathUtils.PATH_ATTRIBUTE);
+        try {
+            // Handler mappings expect the parsed path that DispatcherServlet normally caches
+            ServletRequestPathUtils.parseAndCache(request);
+            HandlerExecutionChain chain = handlerMapping.getHandler(request);
+            if (chain != null && chain.getHandler() instanceof HandlerMethod) {
+                return (HandlerMethod) chain.getHandler();
+            }
+        } catch (Exception e) {
+            log.debug("Could not resolve handler for {}: {}", request.getRequestURI(), e.getMessage());
+        } finally {
+            ServletRequestPathUtils.setParsedRequestPath((RequestPath) previousPath, request);
+        }
+        return null;
+    }
+    
     private void sendRateLimitResponse(HttpServletRequest request, HttpServletResponse response, String message) throws IOException {
         // Check if this is an API request (JSON expected)
         String acceptHeader = request.getHeader("Accept");
@@ -80,18 +194,4 @@ public class GlobalRateLimitFilter extends OncePerRequestFilter {
             response.sendRedirect(errorUrl);
         }
     }
-    
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
-    }
 }
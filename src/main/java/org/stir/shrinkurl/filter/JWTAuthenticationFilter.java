@@ -16,10 +16,10 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.stir.shrinkurl.config.PublicRoutes;
+import org.stir.shrinkurl.dto.AuthenticatedUser;
 import org.stir.shrinkurl.dto.TokenPair;
-import org.stir.shrinkurl.entity.User;
-import org.stir.shrinkurl.repository.UserRepository;
-import org.stir.shrinkurl.service.RefreshTokenService;
+import org.stir.shrinkurl.service.TokenRefreshService;
 import org.stir.shrinkurl.utils.JwtUtil;
 
 import com.auth0.jwt.interfaces.DecodedJWT;
@@ -39,10 +39,20 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
     
     @Autowired
-    private RefreshTokenService refreshTokenService;
+    private TokenRefreshService tokenRefreshService;
 
     @Autowired
-    private UserRepository userRepository;
+    private PublicRoutes publicRoutes;
+
+    /**
+     * Anonymous redirects and static assets never need a token verified or
+     * refreshed. This filter is also registered as a plain servlet filter, so
+     * ignoring the paths in the security chain alone would not skip it.
+     */
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return publicRoutes.isFastPath(request);
+    }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, 
@@ -80,13 +90,11 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
                                      HttpServletResponse response, 
                                      HttpServletRequest request) {
         try {
-            Optional<User> userOpt = refreshTokenService.getUserFromRefreshToken(refreshToken);
+            // Concurrent refreshes with the same token share one rotation
+            Optional<TokenPair> rotated = tokenRefreshService.refresh(refreshToken);
             
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                
-                // Generate new tokens
-                TokenPair newTokens = jwtUtil.generateTokens(user);
+            if (rotated.isPresent()) {
+                TokenPair newTokens = rotated.get();
                 
                 // Set new cookies
                 setAuthCookies(response, newTokens);
@@ -106,33 +114,30 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         return false;
     }
     
+    /**
+     * Authenticate from the token's claims alone; handlers that need the User
+     * entity get it through AuthenticatedUserArgumentResolver
+     */
     private void setAuthentication(DecodedJWT decodedToken, HttpServletRequest request) {
-        String email = decodedToken.getClaim("email").asString();
-        Long userId = decodedToken.getClaim("userId").asLong();
-        List<String> roles = decodedToken.getClaim("roles").asList(String.class);
-        
-        // Fetch the actual User object from database
-        Optional<User> userOpt = userRepository.findById(userId);
+        AuthenticatedUser principal = AuthenticatedUser.fromToken(decodedToken);
+        if (principal.getId() == null) {
+            return;
+        }
         
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            
-            List<SimpleGrantedAuthority> authorities = new ArrayList<>();
-            if (roles != null) {
-                for (String role : roles) {
-                    authorities.add(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()));
-                }
-            } else {
-                authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        if (!principal.getRoles().isEmpty()) {
+            for (String role : principal.getRoles()) {
+                authorities.add(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()));
             }
-            
-            // Set User object as principal instead of email string
-            UsernamePasswordAuthenticationToken authToken = 
-                new UsernamePasswordAuthenticationToken(user, null, authorities);
-            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            
-            SecurityContextHolder.getContext().setAuthentication(authToken);
+        } else {
+            authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
         }
+        
+        UsernamePasswordAuthenticationToken authToken = 
+            new UsernamePasswordAuthenticationToken(principal, null, authorities);
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        
+        SecurityContextHolder.getContext().setAuthentication(authToken);
     }
     
     private void setAuthCookies(HttpServletResponse response, TokenPair tokens) {
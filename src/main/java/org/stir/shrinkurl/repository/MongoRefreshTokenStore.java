@@ -0,0 +1,41 @@
+package org.stir.shrinkurl.repository;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.stir.shrinkurl.entity.RefreshToken;
+
+/**
+ * Refresh tokens in the MongoDB {@code refresh_tokens} collection. Expired
+ * documents are removed by the TTL index on {@code expiryDate}, which MongoDB
+ * only applies about once a minute.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.refresh-token.store", havingValue = "mongo", matchIfMissing = true)
+public class MongoRefreshTokenStore implements RefreshTokenStore {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Override
+    public RefreshToken save(RefreshToken refreshToken) {
+        return refreshTokenRepository.save(refreshToken);
+    }
+
+    @Override
+    public Optional<RefreshToken> findByToken(String token) {
+        return refreshTokenRepository.findByToken(token);
+    }
+
+    @Override
+    public void deleteByUserId(Long userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    @Override
+    public void deleteByToken(String token) {
+        refreshTokenRepository.deleteByToken(token);
+    }
+}
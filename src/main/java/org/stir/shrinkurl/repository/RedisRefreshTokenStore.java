@@ -0,0 +1,152 @@
+package org.stir.shrinkurl.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.stir.shrinkurl.entity.RefreshToken;
+import org.stir.shrinkurl.utils.JwtUtil;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Refresh tokens in the session Redis (DB 2 by default, see RedisConfig),
+ * expired by Redis itself at their expiry date. That database is never
+ * flushed as a cache; its instance should not evict keys either, or users
+ * are signed out, so a different eviction policy is logged at startup.
+ *
+ * Each token is one {@code refresh_token:<SHA-256 of the token>} string
+ * ({@code userId|expiry millis|created millis|email}) with a TTL, and each
+ * user has a {@code refresh_tokens_user:<userId>} set of their tokens'
+ * digests so {@link #deleteByUserId} can find them. The raw token is never
+ * written to Redis, so reading the keys does not reveal live tokens. The
+ * set's TTL follows the user's newest token. A token and its user's set may live on different Cluster
+ * nodes, so they are written one command at a time: the set first, so a
+ * failed write never leaves a token that logout cannot find.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.refresh-token.store", havingValue = "redis")
+@Slf4j
+public class RedisRefreshTokenStore implements RefreshTokenStore {
+
+    static final String TOKEN_PREFIX = "refresh_token:";
+    static final String USER_PREFIX = "refresh_tokens_user:";
+
+    private static final String SEPARATOR = "|";
+
+    @Autowired
+    @Qualifier("sessionRedisTemplate")
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * Warn if the session Redis may evict keys; a missing refresh token signs its user out
+     */
+    @PostConstruct
+    public void checkEvictionPolicy() {
+        try {
+            Properties config = redisTemplate.execute(
+                (RedisCallback<Properties>) connection -> connection.serverCommands().getConfig("maxmemory-policy"));
+            if (config == null) {
+                return;
+            }
+            // Cluster mode prefixes each node's entry with its address
+            for (String name : config.stringPropertyNames()) {
+                String policy = config.getProperty(name);
+                if (name.endsWith("maxmemory-policy") && !"noeviction".equals(policy)) {
+                    log.warn("Session Redis uses maxmemory-policy {}: refresh tokens may be evicted, signing users out", policy);
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            // CONFIG is often disabled on managed Redis
+            log.debug("Could not read session Redis maxmemory-policy: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public RefreshToken save(RefreshToken refreshToken) {
+        long ttlMillis = refreshToken.getExpiryDate().getTime() - System.currentTimeMillis();
+        if (ttlMillis <= 0) {
+            log.warn("Not storing refresh token for user {}: already expired", refreshToken.getUserId());
+            return refreshToken;
+        }
+
+        // The token identifies the entry, so it doubles as the id
+        refreshToken.setId(refreshToken.getToken());
+        Duration ttl = Duration.ofMillis(ttlMillis);
+        String userKey = USER_PREFIX + refreshToken.getUserId();
+        String digest = JwtUtil.digestHex(refreshToken.getToken());
+        redisTemplate.opsForSet().add(userKey, digest);
+        redisTemplate.expire(userKey, ttl);
+        redisTemplate.opsForValue().set(TOKEN_PREFIX + digest, encode(refreshToken), ttl);
+        return refreshToken;
+    }
+
+    @Override
+    public Optional<RefreshToken> findByToken(String token) {
+        Object value = redisTemplate.opsForValue().get(TOKEN_PREFIX + JwtUtil.digestHex(token));
+        return value != null ? Optional.ofNullable(decode(token, value.toString())) : Optional.empty();
+    }
+
+    @Override
+    public void deleteByUserId(Long userId) {
+        String userKey = USER_PREFIX + userId;
+        Set<Object> digests = redisTemplate.opsForSet().members(userKey);
+        if (digests != null && !digests.isEmpty()) {
+            List<String> keys = new ArrayList<>(digests.size());
+            for (Object digest : digests) {
+                keys.add(TOKEN_PREFIX + digest);
+            }
+            redisTemplate.delete(keys);
+        }
+        redisTemplate.delete(userKey);
+    }
+
+    @Override
+    public void deleteByToken(String token) {
+        Optional<RefreshToken> refreshToken = findByToken(token);
+        String digest = JwtUtil.digestHex(token);
+        redisTemplate.delete(TOKEN_PREFIX + digest);
+        refreshToken.ifPresent(rt -> redisTemplate.opsForSet().remove(USER_PREFIX + rt.getUserId(), digest));
+    }
+
+    private static String encode(RefreshToken refreshToken) {
+        // Email last: it is the only field that may contain the separator
+        return refreshToken.getUserId() + SEPARATOR
+            + refreshToken.getExpiryDate().getTime() + SEPARATOR
+            + (refreshToken.getCreatedAt() != null ? refreshToken.getCreatedAt().getTime() : 0) + SEPARATOR
+            + (refreshToken.getEmail() != null ? refreshToken.getEmail() : "");
+    }
+
+    private static RefreshToken decode(String token, String value) {
+        String[] parts = value.split("\\|", 4);
+        if (parts.length != 4) {
+            log.warn("Ignoring malformed refresh token entry for user {}", parts[0]);
+            return null;
+        }
+        try {
+            return RefreshToken.builder()
+                .id(token)
+                .token(token)
+                .userId(Long.parseLong(parts[0]))
+                .expiryDate(new Date(Long.parseLong(parts[1])))
+                .createdAt(new Date(Long.parseLong(parts[2])))
+                .email(parts[3].isEmpty() ? null : parts[3])
+                .build();
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed refresh token entry for user {}", parts[0]);
+            return null;
+        }
+    }
+}
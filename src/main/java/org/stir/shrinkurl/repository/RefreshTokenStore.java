@@ -0,0 +1,28 @@
+package org.stir.shrinkurl.repository;
+
+import java.util.Optional;
+
+import org.stir.shrinkurl.entity.RefreshToken;
+
+/**
+ * Where refresh tokens are kept, chosen with {@code auth.refresh-token.store}:
+ * {@code mongo} (default, {@link MongoRefreshTokenStore}) or {@code redis}
+ * ({@link RedisRefreshTokenStore}).
+ */
+public interface RefreshTokenStore {
+
+    /**
+     * Store a new token; it is dropped by the store once its expiry date passes
+     */
+    RefreshToken save(RefreshToken refreshToken);
+
+    /**
+     * The stored token, or empty if it is unknown; may still return a token
+     * whose expiry date has passed but that the store has not dropped yet
+     */
+    Optional<RefreshToken> findByToken(String token);
+
+    void deleteByUserId(Long userId);
+
+    void deleteByToken(String token);
+}
@@ -0,0 +1,21 @@
+package org.stir.shrinkurl.repository;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.stir.shrinkurl.entity.ShortCodeSequence;
+
+import java.util.Optional;
+
+@Repository
+public interface ShortCodeSequenceRepository extends JpaRepository<ShortCodeSequence, String> {
+    
+    // Lock the sequence row while a block is leased from it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ShortCodeSequence s WHERE s.name = :name")
+    Optional<ShortCodeSequence> findByNameForUpdate(@Param("name") String name);
+}
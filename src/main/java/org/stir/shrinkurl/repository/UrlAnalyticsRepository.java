@@ -5,47 +5,63 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.stir.shrinkurl.entity.UrlAnalytics;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Read queries run in read-only transactions so they can be served by the
+ * read replica (see ReadReplicaConfig) unless they join a write transaction
+ */
 @Repository
 public interface UrlAnalyticsRepository extends JpaRepository<UrlAnalytics, Long> {
     
     // Find analytics for a specific URL and date
+    @Transactional(readOnly = true)
     Optional<UrlAnalytics> findByUrlIdAndClickDate(Long urlId, LocalDate clickDate);
     
     // Get analytics for a URL over a date range
+    @Transactional(readOnly = true)
     List<UrlAnalytics> findByUrlIdAndClickDateBetween(Long urlId, LocalDate startDate, LocalDate endDate);
     
     // Get total clicks for a URL
+    @Transactional(readOnly = true)
     @Query("SELECT SUM(ua.clickCount) FROM UrlAnalytics ua WHERE ua.urlId = :urlId")
     Long getTotalClicksByUrlId(@Param("urlId") Long urlId);
     
     // Get clicks for last N days
+    @Transactional(readOnly = true)
     @Query("SELECT ua FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.clickDate >= :startDate ORDER BY ua.clickDate ASC")
     List<UrlAnalytics> getClicksForLastNDays(@Param("urlId") Long urlId, @Param("startDate") LocalDate startDate);
     
-    // Increment click count
+    // Add a batch of clicks to a day's click count, creating the day's row if needed.
+    // Atomic on the unique (url_id, click_date) index, so concurrent flushes never create duplicate days
     @Modifying
-    @Query("UPDATE UrlAnalytics ua SET ua.clickCount = ua.clickCount + 1, ua.updatedAt = CURRENT_TIMESTAMP WHERE ua.urlId = :urlId AND ua.clickDate = :clickDate")
-    int incrementClickCount(@Param("urlId") Long urlId, @Param("clickDate") LocalDate clickDate);
+    @Query(value = "INSERT INTO url_analytics (url_id, click_date, click_count, created_at, updated_at) "
+        + "VALUES (:urlId, :clickDate, :clicks, NOW(), NOW()) "
+        + "ON DUPLICATE KEY UPDATE click_count = click_count + :clicks, updated_at = NOW()", nativeQuery = true)
+    int addClicks(@Param("urlId") Long urlId, @Param("clickDate") LocalDate clickDate, @Param("clicks") Integer clicks);
     
     // Get total clicks for user URLs
+    @Transactional(readOnly = true)
     @Query("SELECT SUM(ua.clickCount) FROM UrlAnalytics ua JOIN Url u ON ua.urlId = u.id WHERE u.userId = :userId")
     Long getTotalClicksByUserId(@Param("userId") Long userId);
     
     // Get clicks for user URLs in date range
+    @Transactional(readOnly = true)
     @Query("SELECT SUM(ua.clickCount) FROM UrlAnalytics ua JOIN Url u ON ua.urlId = u.id WHERE u.userId = :userId AND ua.clickDate BETWEEN :startDate AND :endDate")
     Long getClicksByUserIdAndDateRange(@Param("userId") Long userId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
     
     // Get clicks for user in date range
+    @Transactional(readOnly = true)
     @Query("SELECT ua FROM UrlAnalytics ua JOIN Url u ON ua.urlId = u.id WHERE u.userId = :userId AND ua.clickDate >= :startDate ORDER BY ua.clickDate DESC")
     List<UrlAnalytics> getClicksForUserInDateRange(@Param("userId") Long userId, @Param("startDate") LocalDate startDate);
     
     // Get analytics for user's URLs
+    @Transactional(readOnly = true)
     @Query("SELECT ua FROM UrlAnalytics ua JOIN Url u ON ua.urlId = u.id WHERE u.userId = :userId ORDER BY ua.clickDate DESC")
     List<UrlAnalytics> getAnalyticsByUserId(@Param("userId") Long userId);
 }
@@ -7,9 +7,11 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.stir.shrinkurl.entity.Url;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,7 +21,8 @@ public interface UrlRepository extends JpaRepository<Url, Long> {
     // Find by short code (most important for redirection)
     Optional<Url> findByShortCode(String shortCode);
     
-    // Find by short code and active status
+    // Find by short code and active status (redirect fallback; served by the read replica)
+    @Transactional(readOnly = true)
     Optional<Url> findByShortCodeAndIsActive(String shortCode, Boolean isActive);
     
     // Find all URLs by user ID
@@ -31,7 +34,8 @@ public interface UrlRepository extends JpaRepository<Url, Long> {
     // Find URLs by user ID ordered by creation date
     List<Url> findByUserIdOrderByCreatedAtDesc(Long userId);
     
-    // Find active URLs by user ID ordered by creation date
+    // Find active URLs by user ID ordered by creation date (dashboard; served by the read replica)
+    @Transactional(readOnly = true)
     List<Url> findByUserIdAndIsActiveOrderByCreatedAtDesc(Long userId, Boolean isActive);
     
     // Count total URLs by user
@@ -44,10 +48,47 @@ public interface UrlRepository extends JpaRepository<Url, Long> {
     @Query("SELECT u FROM Url u WHERE u.expiresAt <= :currentTime AND u.isActive = true")
     List<Url> findExpiredUrls(@Param("currentTime") LocalDateTime currentTime);
     
-    // Update click count
+    // IDs of expired URLs that are still active, for the expiry sweeper
+    @Query("SELECT u.id FROM Url u WHERE u.expiresAt <= :currentTime AND u.isActive = true ORDER BY u.id ASC")
+    List<Long> findExpiredIds(@Param("currentTime") LocalDateTime currentTime, Pageable pageable);
+    
+    // Deactivate a batch of expired URLs
+    @Modifying
+    @Query("UPDATE Url u SET u.isActive = false WHERE u.id IN :ids AND u.isActive = true")
+    int deactivateAll(@Param("ids") Collection<Long> ids);
+    
+    // Add a batch of clicks to the click count
     @Modifying
-    @Query("UPDATE Url u SET u.clickCount = u.clickCount + 1, u.lastClickedAt = :clickTime WHERE u.id = :id")
-    void incrementClickCount(@Param("id") Long id, @Param("clickTime") LocalDateTime clickTime);
+    @Query("UPDATE Url u SET u.clickCount = u.clickCount + :clicks, u.lastClickedAt = :clickTime WHERE u.id = :id")
+    int incrementClickCount(@Param("id") Long id, @Param("clicks") Integer clicks, @Param("clickTime") LocalDateTime clickTime);
+    
+    // Map short codes to URL IDs in one query (rows of [shortCode, id])
+    @Query("SELECT u.shortCode, u.id FROM Url u WHERE u.shortCode IN :shortCodes")
+    List<Object[]> findIdsByShortCodes(@Param("shortCodes") Collection<String> shortCodes);
+    
+    // Page through all short codes in ID order (rows of [id, shortCode])
+    @Query("SELECT u.id, u.shortCode FROM Url u WHERE u.id > :afterId ORDER BY u.id ASC")
+    List<Object[]> findShortCodesAfterId(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Most clicked live URLs, for cache warm-up (first page of a keyset scan of idx_url_click_count)
+    @Query("SELECT u FROM Url u WHERE u.isActive = true AND (u.expiresAt IS NULL OR u.expiresAt > :now) ORDER BY u.clickCount DESC, u.id DESC")
+    List<Url> findTopClickedActive(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    // Next page of most clicked live URLs, after the last row of the previous page
+    @Query("SELECT u FROM Url u WHERE u.isActive = true AND (u.expiresAt IS NULL OR u.expiresAt > :now) AND (u.clickCount < :clickCount OR (u.clickCount = :clickCount AND u.id < :id)) ORDER BY u.clickCount DESC, u.id DESC")
+    List<Url> findTopClickedActiveAfter(@Param("now") LocalDateTime now, @Param("clickCount") Integer clickCount, @Param("id") Long id, Pageable pageable);
+    
+    // Most recently clicked live URLs, for cache warm-up (first page of a keyset scan of idx_url_last_clicked)
+    @Query("SELECT u FROM Url u WHERE u.isActive = true AND (u.expiresAt IS NULL OR u.expiresAt > :now) AND u.lastClickedAt >= :since ORDER BY u.lastClickedAt DESC, u.id DESC")
+    List<Url> findRecentlyClickedActive(@Param("now") LocalDateTime now, @Param("since") LocalDateTime since, Pageable pageable);
+    
+    // Next page of most recently clicked live URLs, after the last row of the previous page
+    @Query("SELECT u FROM Url u WHERE u.isActive = true AND (u.expiresAt IS NULL OR u.expiresAt > :now) AND u.lastClickedAt >= :since AND (u.lastClickedAt < :lastClickedAt OR (u.lastClickedAt = :lastClickedAt AND u.id < :id)) ORDER BY u.lastClickedAt DESC, u.id DESC")
+    List<Url> findRecentlyClickedActiveAfter(@Param("now") LocalDateTime now, @Param("since") LocalDateTime since, @Param("lastClickedAt") LocalDateTime lastClickedAt, @Param("id") Long id, Pageable pageable);
+    
+    // Page through live URLs in ID order, for bulk re-caching
+    @Query("SELECT u FROM Url u WHERE u.id > :afterId AND u.isActive = true AND (u.expiresAt IS NULL OR u.expiresAt > :now) ORDER BY u.id ASC")
+    List<Url> findActiveAfterId(@Param("afterId") Long afterId, @Param("now") LocalDateTime now, Pageable pageable);
     
     // Check if short code exists
     boolean existsByShortCode(String shortCode);
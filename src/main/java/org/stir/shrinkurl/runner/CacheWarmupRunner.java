@@ -0,0 +1,155 @@
+package org.stir.shrinkurl.runner;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.stir.shrinkurl.entity.Url;
+import org.stir.shrinkurl.repository.UrlRepository;
+import org.stir.shrinkurl.service.UrlService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Preloads the most clicked (and optionally the most recently clicked) live
+ * URL mappings into Redis at startup, so a deploy or a Redis flush does not
+ * send the first minutes of redirects to MySQL.
+ *
+ * Runs as an ApplicationRunner: Spring Boot only reports the application as
+ * ready to accept traffic once all runners have returned, so readiness stays
+ * false until the warm-up finishes or runs out of its time budget. Tomcat
+ * accepts connections before that, so the load balancer has to route by the
+ * readiness probe ({@code /actuator/health/readiness}, with
+ * {@code management.endpoint.health.probes.enabled=true}) for this to keep
+ * cold nodes out of rotation.
+ *
+ * Both lists are read with keyset paging along their indexes
+ * ({@code idx_url_click_count}, {@code idx_url_last_clicked}): each page
+ * continues after the last row of the previous one instead of sorting the
+ * table again and skipping an offset.
+ */
+@Component
+@Slf4j
+public class CacheWarmupRunner implements ApplicationRunner {
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Value("${url.cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${url.cache.warmup.top-n:10000}")
+    private int topN;
+
+    @Value("${url.cache.warmup.recent-hours:24}")
+    private int recentHours;
+
+    @Value("${url.cache.warmup.recent-n:10000}")
+    private int recentN;
+
+    @Value("${url.cache.warmup.page-size:500}")
+    private int pageSize;
+
+    @Value("${url.cache.warmup.time-budget-ms:30000}")
+    private long timeBudgetMs;
+
+    private volatile int warmed;
+    private volatile long durationMs;
+    private volatile boolean budgetExceeded;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        long deadline = start + timeBudgetMs;
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> seen = new HashSet<>();
+
+        try {
+            PageRequest page = PageRequest.of(0, pageSize);
+            warm(last -> last == null
+                    ? urlRepository.findTopClickedActive(now, page)
+                    : urlRepository.findTopClickedActiveAfter(now, last.getClickCount(), last.getId(), page),
+                topN, seen, deadline);
+            if (recentHours > 0 && System.currentTimeMillis() < deadline) {
+                LocalDateTime since = now.minusHours(recentHours);
+                warm(last -> last == null
+                        ? urlRepository.findRecentlyClickedActive(now, since, page)
+                        : urlRepository.findRecentlyClickedActiveAfter(now, since, last.getLastClickedAt(), last.getId(), page),
+                    recentN, seen, deadline);
+            }
+        } catch (Exception e) {
+            // A cold cache is slower, not broken; never block startup on it
+            log.warn("URL cache warm-up stopped early: {}", e.getMessage());
+        }
+
+        durationMs = System.currentTimeMillis() - start;
+        log.info("URL cache warm-up loaded {} mappings in {}ms{}", warmed, durationMs,
+            budgetExceeded ? " (time budget reached)" : "");
+    }
+
+    /**
+     * Snapshot of warm-up results for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("warmed", warmed);
+        stats.put("duration_ms", durationMs);
+        stats.put("budget_exceeded", budgetExceeded);
+        return stats;
+    }
+
+    /**
+     * Cache up to limit URLs, reading pages of pageSize; nextPage gets the
+     * last URL of the previous page (null for the first)
+     */
+    private void warm(Function<Url, List<Url>> nextPage, int limit, Set<String> seen, long deadline) {
+        int read = 0;
+        Url last = null;
+        while (read < limit) {
+            if (System.currentTimeMillis() >= deadline) {
+                budgetExceeded = true;
+                return;
+            }
+
+            List<Url> urls = nextPage.apply(last);
+            boolean lastPage = urls.size() < pageSize;
+            if (urls.size() > limit - read) {
+                urls = urls.subList(0, limit - read);
+            }
+
+            List<Url> fresh = new ArrayList<>(urls.size());
+            for (Url url : urls) {
+                if (seen.add(url.getShortCode())) {
+                    fresh.add(url);
+                }
+            }
+            // One pipelined round trip per page
+            warmed += urlService.cacheUrlMappings(fresh);
+            read += urls.size();
+
+            if (lastPage || urls.isEmpty()) {
+                return;
+            }
+            last = urls.get(urls.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.stir.shrinkurl.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.stir.shrinkurl.repository.UrlAnalyticsRepository;
+import org.stir.shrinkurl.repository.UrlRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Click counting for the redirect path.
+ *
+ * Each short code gets a striped LongAdder counter, so a redirect is a single
+ * uncontended increment with no allocation once the code has been seen. A
+ * background flusher drains the counters every interval and applies the
+ * deltas as one relative UPDATE per URL and one upsert per (URL, day)
+ * inside a single transaction. Counters live in a per-day generation that is rotated at
+ * midnight, or early when the table nears its size bound; a rotated
+ * generation is drained twice before it is dropped so late increments from
+ * threads that still held a reference are not lost. Deltas from a failed
+ * flush are retried on the next one under the day they were counted for,
+ * so a retry after midnight still lands in the right analytics row.
+ *
+ * Readers should add {@link #getPendingClicks(String)} to the persisted
+ * click count to see clicks that have not been flushed yet, and
+ * {@link #getPendingClicks(String, LocalDate)} to a day's analytics row.
+ */
+@Service
+@Slf4j
+public class ClickTrackingService {
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UrlAnalyticsRepository urlAnalyticsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${click-tracking.max-tracked-codes:200000}")
+    private int maxTrackedCodes;
+
+    @Value("${click-tracking.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    // Short codes per ID lookup, so a large flush never builds one huge IN list
+    @Value("${click-tracking.lookup-batch-size:1000}")
+    private int lookupBatchSize;
+
+    private volatile Generation current;
+    private final List<Generation> retiring = new ArrayList<>();
+    // day -> (shortCode -> clicks) drained but not yet persisted; written only by flush()
+    private final Map<LocalDate, Map<String, Long>> inFlight = new ConcurrentHashMap<>();
+    // day -> (shortCode -> clicks) of failed flushes; guarded by this, still counted in inFlight
+    private final Map<LocalDate, Map<String, Long>> pendingRetry = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean(false);
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushedClicks = new LongAdder();
+    private final LongAdder requeuedClicks = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        current = new Generation(LocalDate.now());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "click-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Click tracking started (maxTrackedCodes={}, interval={}ms)", maxTrackedCodes, flushIntervalMs);
+    }
+
+    /**
+     * Record a click without touching the database; never blocks the caller
+     */
+    public void recordClick(String shortCode) {
+        Generation generation = current;
+        LongAdder counter = generation.counters.get(shortCode);
+
+        if (counter == null) {
+            int size = generation.counters.size();
+            if (size >= maxTrackedCodes) {
+                // Hard bound reached before the flusher could rotate the table
+                dropped.increment();
+                requestEarlyFlush();
+                return;
+            }
+            if (size >= rotationThreshold()) {
+                requestEarlyFlush();
+            }
+            counter = generation.counters.computeIfAbsent(shortCode, k -> new LongAdder());
+        }
+
+        counter.increment();
+        recorded.increment();
+    }
+
+    /**
+     * Clicks recorded for a short code that are not yet reflected in urls.click_count
+     */
+    public long getPendingClicks(String shortCode) {
+        return getPendingClicks(shortCode, null);
+    }
+
+    /**
+     * Clicks recorded for a short code on one day (or on any day if null) that
+     * are not yet reflected in that day's url_analytics row. After a failed
+     * flush these include earlier days' clicks, kept under their own day.
+     */
+    public long getPendingClicks(String shortCode, LocalDate day) {
+        long pending = 0;
+        Generation generation = current;
+        if (day == null || generation.day.equals(day)) {
+            pending += pendingIn(generation, shortCode);
+        }
+        synchronized (retiring) {
+            for (Generation retired : retiring) {
+                if (day == null || retired.day.equals(day)) {
+                    pending += pendingIn(retired, shortCode);
+                }
+            }
+        }
+        for (Map.Entry<LocalDate, Map<String, Long>> flushing : inFlight.entrySet()) {
+            if (day == null || flushing.getKey().equals(day)) {
+                pending += flushing.getValue().getOrDefault(shortCode, 0L);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Drain the counters and persist the deltas
+     */
+    public synchronized void flush() {
+        LocalDate today = LocalDate.now();
+        Generation generation = current;
+        if (!generation.day.equals(today) || generation.counters.size() >= rotationThreshold()) {
+            current = new Generation(today);
+            synchronized (retiring) {
+                retiring.add(generation);
+            }
+            rotations.increment();
+        }
+
+        // day -> (shortCode -> clicks), starting with the deltas of a failed flush
+        Map<LocalDate, Map<String, Long>> deltas = new HashMap<>();
+        pendingRetry.forEach((day, perCode) -> deltas.put(day, new HashMap<>(perCode)));
+        pendingRetry.clear();
+        synchronized (retiring) {
+            Iterator<Generation> it = retiring.iterator();
+            while (it.hasNext()) {
+                Generation retired = it.next();
+                drain(retired, deltas);
+                if (++retired.drainPasses >= 2) {
+                    it.remove();
+                }
+            }
+        }
+        drain(current, deltas);
+
+        if (!deltas.isEmpty()) {
+            persist(deltas);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Final drains so counted clicks survive a graceful shutdown
+        flushSafely();
+        flushSafely();
+        log.info("Click tracking stopped (flushed={}, dropped={})", flushedClicks.sum(), dropped.sum());
+    }
+
+    /**
+     * Snapshot of click tracking counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tracked_codes", current.counters.size());
+        stats.put("max_tracked_codes", maxTrackedCodes);
+        stats.put("recorded", recorded.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("flushed", flushedClicks.sum());
+        stats.put("requeued", requeuedClicks.sum());
+        stats.put("in_flight_codes", inFlight.values().stream().mapToInt(Map::size).sum());
+        stats.put("retry_days", pendingRetry.size());
+        stats.put("flushes", flushes.sum());
+        stats.put("failed_flushes", failedFlushes.sum());
+        stats.put("rotations", rotations.sum());
+        stats.put("update_statements", statements.sum());
+        return stats;
+    }
+
+    private int rotationThreshold() {
+        return maxTrackedCodes - maxTrackedCodes / 4;
+    }
+
+    private void requestEarlyFlush() {
+        if (!earlyFlushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flusher.execute(() -> {
+                earlyFlushScheduled.set(false);
+                flushSafely();
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the final drain in shutdown() picks these up
+            earlyFlushScheduled.set(false);
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Click flush failed: {}", e.getMessage());
+        }
+    }
+
+    private long pendingIn(Generation generation, String shortCode) {
+        LongAdder counter = generation.counters.get(shortCode);
+        return counter != null ? counter.sum() : 0L;
+    }
+
+    private void drain(Generation generation, Map<LocalDate, Map<String, Long>> deltas) {
+        for (Map.Entry<String, LongAdder> entry : generation.counters.entrySet()) {
+            LongAdder counter = entry.getValue();
+            long clicks = counter.sum();
+            if (clicks == 0) {
+                continue;
+            }
+            // Publish as in-flight before subtracting so readers never undercount
+            inFlight.computeIfAbsent(generation.day, d -> new ConcurrentHashMap<>())
+                .merge(entry.getKey(), clicks, Long::sum);
+            counter.add(-clicks);
+            deltas.computeIfAbsent(generation.day, d -> new HashMap<>())
+                .merge(entry.getKey(), clicks, Long::sum);
+        }
+    }
+
+    private void persist(Map<LocalDate, Map<String, Long>> deltas) {
+        Map<String, Long> totals = new HashMap<>();
+        for (Map<String, Long> perCode : deltas.values()) {
+            perCode.forEach((code, clicks) -> totals.merge(code, clicks, Long::sum));
+        }
+        long clickCount = totals.values().stream().mapToLong(Long::longValue).sum();
+        LocalDateTime flushTime = LocalDateTime.now();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Object[] row : findIds(totals.keySet())) {
+                    String shortCode = (String) row[0];
+                    Long urlId = (Long) row[1];
+
+                    // last_clicked_at is accurate to the flush interval
+                    urlRepository.incrementClickCount(urlId, (int) (long) totals.get(shortCode), flushTime);
+                    statements.increment();
+
+                    for (Map.Entry<LocalDate, Map<String, Long>> day : deltas.entrySet()) {
+                        Long clicks = day.getValue().get(shortCode);
+                        if (clicks == null) {
+                            continue;
+                        }
+                        urlAnalyticsRepository.addClicks(urlId, day.getKey(), (int) (long) clicks);
+                        statements.increment();
+                    }
+                }
+            });
+            flushedClicks.add(clickCount);
+            flushes.increment();
+            deltas.forEach((day, perCode) -> {
+                Map<String, Long> flushing = inFlight.get(day);
+                if (flushing != null) {
+                    perCode.forEach((code, clicks) ->
+                        flushing.computeIfPresent(code, (k, v) -> v - clicks == 0 ? null : v - clicks));
+                    // Only flush() adds to inFlight, so an emptied day stays empty
+                    if (flushing.isEmpty()) {
+                        inFlight.remove(day);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            // Keep the deltas under their own day so the next flush retries them there;
+            // they stay in inFlight until then
+            deltas.forEach((day, perCode) -> {
+                Map<String, Long> retry = pendingRetry.computeIfAbsent(day, d -> new HashMap<>());
+                perCode.forEach((code, clicks) -> retry.merge(code, clicks, Long::sum));
+            });
+            requeuedClicks.add(clickCount);
+            failedFlushes.increment();
+            log.error("Failed to persist {} clicks, requeued: {}", clickCount, e.getMessage());
+        }
+    }
+
+    /**
+     * Rows of [shortCode, id] for the codes, looked up {@code lookupBatchSize} codes at a time
+     */
+    private List<Object[]> findIds(Collection<String> shortCodes) {
+        List<Object[]> ids = new ArrayList<>(shortCodes.size());
+        List<String> batch = new ArrayList<>(Math.min(shortCodes.size(), lookupBatchSize));
+        for (String shortCode : shortCodes) {
+            batch.add(shortCode);
+            if (batch.size() >= lookupBatchSize) {
+                ids.addAll(urlRepository.findIdsByShortCodes(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            ids.addAll(urlRepository.findIdsByShortCodes(batch));
+        }
+        return ids;
+    }
+
+    /**
+     * Counter table for one calendar day
+     */
+    private static final class Generation {
+        private final LocalDate day;
+        private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+        private int drainPasses;
+
+        Generation(LocalDate day) {
+            this.day = day;
+        }
+    }
+}
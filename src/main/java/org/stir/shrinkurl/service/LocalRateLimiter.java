@@ -0,0 +1,411 @@
+package org.stir.shrinkurl.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.stir.shrinkurl.annotation.RateLimit;
+import org.stir.shrinkurl.cache.StripedLruMap;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Node-local pre-filter for the global per-IP limits.
+ *
+ * Every client IP gets a local token bucket (capacity = per-minute limit) and
+ * a count of requests admitted since the last Redis sync. Most requests are
+ * decided from memory; the locally admitted count is pushed to the shared
+ * per-minute and per-hour counters in one script call every sync interval or
+ * sync batch. Once the last known global count gets close to a limit, the
+ * client switches to an exact check on every request, and once a limit is
+ * hit it is rejected locally until that window resets.
+ *
+ * Limits are therefore approximate across nodes by at most one sync batch per
+ * node, at a fraction of the Redis calls. Clients that stop sending before a
+ * batch fills are pushed by a background task once their sync interval has
+ * passed, so their count still reaches the shared windows (even if they have
+ * been evicted meanwhile). Requests to endpoints with their own @RateLimit
+ * always reach Redis, so they carry the global sync in that same call.
+ *
+ * Redis is called outside the client's monitor: the admitted count is moved
+ * to a "syncing" count first, so other requests from the same client keep
+ * being decided from memory (counting it) while the call is in progress.
+ */
+@Service
+@Slf4j
+public class LocalRateLimiter {
+
+    private static final int STRIPES = 32;
+
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Value("${rate-limit.global.requests-per-minute:1000}")
+    private int requestsPerMinute;
+
+    @Value("${rate-limit.global.requests-per-hour:10000}")
+    private int requestsPerHour;
+
+    @Value("${rate-limit.global.local.max-clients:100000}")
+    private int maxClients;
+
+    @Value("${rate-limit.global.local.sync-interval-ms:1000}")
+    private long syncIntervalMs;
+
+    @Value("${rate-limit.global.local.sync-batch:20}")
+    private int syncBatch;
+
+    @Value("${rate-limit.global.local.near-threshold:0.8}")
+    private double nearThreshold;
+
+    private StripedLruMap<String, ClientState> clients;
+
+    // Clients with an unsynced count, each at most once (ClientState.queued)
+    private final Queue<ClientState> unsyncedClients = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService syncer;
+
+    private final LongAdder localAllows = new LongAdder();
+    private final LongAdder localRejects = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder exactChecks = new LongAdder();
+    private final LongAdder backgroundSyncs = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        clients = new StripedLruMap<>(maxClients, STRIPES);
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rate-limit-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::syncIdleClientsSafely, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncer.shutdownNow();
+    }
+
+    /**
+     * Admit or reject a request from the given client against the global
+     * per-minute and per-hour limits. Returns the reason when rejected, null when allowed.
+     */
+    public String tryAcquire(String clientIp) {
+        return tryAcquire(clientIp, null, null).getRejection();
+    }
+
+    /**
+     * Same as {@link #tryAcquire(String)}, but for a request whose handler also
+     * carries a @RateLimit. The endpoint limit needs Redis anyway, so the pending
+     * global sync (or the exact global check) rides along in the same script call.
+     */
+    public Decision tryAcquire(String clientIp, String endpointKey, RateLimit endpointLimit) {
+        ClientState state = clients.computeIfAbsent(clientIp, ip -> new ClientState(ip, requestsPerMinute));
+        long now = System.currentTimeMillis();
+        boolean nearLimit;
+        int admitted;
+
+        synchronized (state) {
+            state.expireWindows(now);
+
+            if (now < state.minuteBlockedUntil) {
+                localRejects.increment();
+                return Decision.rejected("Global rate limit exceeded (per minute)");
+            }
+            if (now < state.hourBlockedUntil) {
+                localRejects.increment();
+                return Decision.rejected("Global rate limit exceeded (per hour)");
+            }
+
+            // Node-local burst control: one node alone never exceeds the per-minute rate
+            state.refill(now, requestsPerMinute);
+            if (state.tokens < 1) {
+                localRejects.increment();
+                return Decision.rejected("Global rate limit exceeded (per minute)");
+            }
+
+            int pending = state.unsynced + state.syncing;
+            nearLimit = state.knownMinuteCount + pending + 1 >= requestsPerMinute * nearThreshold
+                || state.knownHourCount + pending + 1 >= requestsPerHour * nearThreshold;
+
+            if (endpointLimit == null && !nearLimit) {
+                state.tokens -= 1;
+                state.unsynced++;
+                localAllows.increment();
+                boolean due = state.unsynced >= syncBatch || now - state.lastSync >= syncIntervalMs;
+                if (!due || state.syncing > 0) {
+                    // Left for a later request or the background sync
+                    if (!state.queued) {
+                        state.queued = true;
+                        unsyncedClients.add(state);
+                    }
+                    return Decision.ALLOWED;
+                }
+            }
+
+            // Away from the limit this request goes with the batch; an exact check adds it in the script
+            admitted = state.beginSync(endpointLimit != null && !nearLimit ? 1 : 0);
+        }
+
+        if (endpointLimit != null) {
+            return acquireWithEndpoint(state, clientIp, endpointKey, endpointLimit, nearLimit, admitted);
+        }
+        if (!nearLimit) {
+            sync(state, admitted, false);
+            return Decision.ALLOWED;
+        }
+
+        // Exact mode: flush what was admitted locally and check this request in the same call
+        exactChecks.increment();
+        RateLimitService.MultiWindowStatus status = sync(state, admitted, true);
+        synchronized (state) {
+            if (!status.isAllowed()) {
+                return Decision.rejected(blockedReason(state, System.currentTimeMillis()));
+            }
+            state.tokens -= 1;
+        }
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * Snapshot of pre-filter counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        long allows = localAllows.sum();
+        long rejects = localRejects.sum();
+        long syncCount = syncs.sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tracked_clients", clients.size());
+        stats.put("max_clients", maxClients);
+        stats.put("evicted_clients", clients.getEvictionCount());
+        stats.put("local_allows", allows);
+        stats.put("local_rejects", rejects);
+        stats.put("redis_syncs", syncCount);
+        stats.put("exact_checks", exactChecks.sum());
+        stats.put("background_syncs", backgroundSyncs.sum());
+        stats.put("unsynced_clients", unsyncedClients.size());
+        long decisions = allows + rejects + exactChecks.sum();
+        stats.put("redis_calls_per_request", decisions > 0 ? (double) syncCount / decisions : 0.0);
+        return stats;
+    }
+
+    private Decision acquireWithEndpoint(ClientState state, String clientIp, String endpointKey,
+                                         RateLimit endpointLimit, boolean nearLimit, int admitted) {
+        RateLimitService.RequestLimitStatus status;
+        try {
+            status = rateLimitService.checkRequest(windowsFor(clientIp), admitted, nearLimit, endpointKey, endpointLimit);
+        } catch (RuntimeException e) {
+            synchronized (state) {
+                state.abortSync(admitted);
+            }
+            throw e;
+        }
+        syncs.increment();
+
+        synchronized (state) {
+            long now = System.currentTimeMillis();
+            state.endSync(admitted, now);
+            applyWindows(state, status.getGlobalWindows());
+
+            if (nearLimit) {
+                exactChecks.increment();
+                if (!status.isGlobalAllowed()) {
+                    return Decision.rejected(blockedReason(state, now));
+                }
+            } else {
+                localAllows.increment();
+            }
+            state.tokens -= 1;
+        }
+        return new Decision(null, status.getEndpoint());
+    }
+
+    /**
+     * Push an admitted count taken with {@link ClientState#beginSync} to Redis,
+     * outside the client's monitor, and apply the returned windows
+     */
+    private RateLimitService.MultiWindowStatus sync(ClientState state, int admitted, boolean check) {
+        RateLimitService.MultiWindowStatus status;
+        try {
+            status = rateLimitService.checkWindows(windowsFor(state.clientIp), admitted, check);
+        } catch (RuntimeException e) {
+            synchronized (state) {
+                state.abortSync(admitted);
+            }
+            throw e;
+        }
+        syncs.increment();
+        synchronized (state) {
+            state.endSync(admitted, System.currentTimeMillis());
+            applyWindows(state, status.getWindows());
+        }
+        return status;
+    }
+
+    /**
+     * Push the unsynced counts of clients whose sync interval has passed
+     * without a request to trigger it
+     */
+    void syncIdleClients() {
+        long now = System.currentTimeMillis();
+        for (int i = unsyncedClients.size(); i > 0; i--) {
+            ClientState state = unsyncedClients.poll();
+            if (state == null) {
+                return;
+            }
+            int admitted;
+            synchronized (state) {
+                if (state.unsynced == 0) {
+                    state.queued = false;
+                    continue;
+                }
+                if (state.syncing > 0 || now - state.lastSync < syncIntervalMs) {
+                    unsyncedClients.add(state);
+                    continue;
+                }
+                state.queued = false;
+                admitted = state.beginSync(0);
+            }
+            sync(state, admitted, false);
+            backgroundSyncs.increment();
+        }
+    }
+
+    private void syncIdleClientsSafely() {
+        try {
+            syncIdleClients();
+        } catch (Exception e) {
+            log.warn("Background rate limit sync failed: {}", e.getMessage());
+        }
+    }
+
+    private List<RateLimitService.WindowLimit> windowsFor(String clientIp) {
+        return Arrays.asList(
+            RateLimitService.WindowLimit.global(clientIp, "minute", requestsPerMinute, 60),
+            RateLimitService.WindowLimit.global(clientIp, "hour", requestsPerHour, 3600)
+        );
+    }
+
+    private void applyWindows(ClientState state, List<RateLimitService.RateLimitStatus> windows) {
+        RateLimitService.RateLimitStatus minute = windows.get(0);
+        RateLimitService.RateLimitStatus hour = windows.get(1);
+        state.knownMinuteCount = minute.getCurrentCount();
+        state.knownHourCount = hour.getCurrentCount();
+        state.minuteResetAt = minute.getResetTime() * 1000;
+        state.hourResetAt = hour.getResetTime() * 1000;
+
+        if (minute.getCurrentCount() >= requestsPerMinute) {
+            state.minuteBlockedUntil = state.minuteResetAt;
+        }
+        if (hour.getCurrentCount() >= requestsPerHour) {
+            state.hourBlockedUntil = state.hourResetAt;
+        }
+    }
+
+    private static String blockedReason(ClientState state, long now) {
+        return state.minuteBlockedUntil > now
+            ? "Global rate limit exceeded (per minute)"
+            : "Global rate limit exceeded (per hour)";
+    }
+
+    /**
+     * Outcome of a pre-filter check: the rejection reason (null when allowed)
+     * and, when an endpoint limit was evaluated alongside, its status
+     */
+    public static final class Decision {
+        private static final Decision ALLOWED = new Decision(null, null);
+
+        private final String rejection;
+        private final RateLimitService.RateLimitStatus endpointStatus;
+
+        public Decision(String rejection, RateLimitService.RateLimitStatus endpointStatus) {
+            this.rejection = rejection;
+            this.endpointStatus = endpointStatus;
+        }
+
+        static Decision rejected(String rejection) {
+            return new Decision(rejection, null);
+        }
+
+        public String getRejection() { return rejection; }
+        public RateLimitService.RateLimitStatus getEndpointStatus() { return endpointStatus; }
+    }
+
+    /**
+     * Per-client state; guarded by its own monitor
+     */
+    private static final class ClientState {
+        private final String clientIp;
+        private double tokens;
+        private long lastRefill;
+        private int unsynced;
+        // Taken from unsynced by a Redis call still in progress
+        private int syncing;
+        private boolean queued;
+        private long lastSync;
+        private int knownMinuteCount;
+        private int knownHourCount;
+        private long minuteResetAt;
+        private long hourResetAt;
+        private long minuteBlockedUntil;
+        private long hourBlockedUntil;
+
+        ClientState(String clientIp, int capacity) {
+            this.clientIp = clientIp;
+            this.tokens = capacity;
+            this.lastRefill = System.currentTimeMillis();
+            this.lastSync = lastRefill;
+        }
+
+        /**
+         * Move the unsynced count (plus extra) to syncing; returns the count to send
+         */
+        int beginSync(int extra) {
+            int admitted = unsynced + extra;
+            unsynced = 0;
+            syncing += admitted;
+            return admitted;
+        }
+
+        void endSync(int admitted, long now) {
+            syncing -= admitted;
+            lastSync = now;
+        }
+
+        // Not sent: count it again with the next sync
+        void abortSync(int admitted) {
+            syncing -= admitted;
+            unsynced += admitted;
+        }
+
+        void refill(long now, int capacity) {
+            long elapsed = now - lastRefill;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * capacity / 60000.0);
+                lastRefill = now;
+            }
+        }
+
+        void expireWindows(long now) {
+            if (now >= minuteResetAt) {
+                knownMinuteCount = 0;
+            }
+            if (now >= hourResetAt) {
+                knownHourCount = 0;
+            }
+        }
+    }
+}
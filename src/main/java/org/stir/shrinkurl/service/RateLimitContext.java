@@ -0,0 +1,44 @@
+package org.stir.shrinkurl.service;
+
+import org.stir.shrinkurl.annotation.RateLimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Request-scoped rate limit result. GlobalRateLimitFilter evaluates the global
+ * limits and the target endpoint's @RateLimit in one Redis call and binds the
+ * endpoint status here; RateLimitAspect consumes it instead of calling Redis again.
+ */
+public class RateLimitContext {
+
+    private static final String ATTRIBUTE = RateLimitContext.class.getName();
+
+    private final RateLimit endpointLimit;
+    private RateLimitService.RateLimitStatus endpointStatus;
+
+    public RateLimitContext(RateLimit endpointLimit, RateLimitService.RateLimitStatus endpointStatus) {
+        this.endpointLimit = endpointLimit;
+        this.endpointStatus = endpointStatus;
+    }
+
+    public static void bind(HttpServletRequest request, RateLimitContext context) {
+        request.setAttribute(ATTRIBUTE, context);
+    }
+
+    public static RateLimitContext get(HttpServletRequest request) {
+        return (RateLimitContext) request.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * Return the pre-evaluated status for this limit, once; null if it was not
+     * evaluated up front or has already been used
+     */
+    public synchronized RateLimitService.RateLimitStatus consume(RateLimit rateLimit) {
+        if (endpointStatus == null || !endpointLimit.equals(rateLimit)) {
+            return null;
+        }
+        RateLimitService.RateLimitStatus status = endpointStatus;
+        endpointStatus = null;
+        return status;
+    }
+}
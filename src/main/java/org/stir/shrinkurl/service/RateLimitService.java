@@ -2,13 +2,38 @@ package org.stir.shrinkurl.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.stir.shrinkurl.annotation.RateLimit;
+import org.stir.shrinkurl.cache.CircuitBreaker;
+import org.stir.shrinkurl.cache.StripedLruMap;
+import org.stir.shrinkurl.enums.RateLimitAlgorithm;
+import org.stir.shrinkurl.utils.RateLimitKeyUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Redis-backed rate limits (DB 1). While the rate-limit circuit breaker is
+ * open, or when a Redis call fails, limits are counted in node-local fixed
+ * windows instead, so every node enforces the full limit on its own until
+ * Redis is back.
+ */
 @Service
 @Slf4j
 public class RateLimitService {
@@ -17,104 +42,358 @@ public class RateLimitService {
     @Qualifier("rateLimitRedisTemplate")
     private RedisTemplate<String, Object> rateLimitRedisTemplate;
     
+    @Autowired
+    @Qualifier("rateLimitCircuitBreaker")
+    private CircuitBreaker rateLimitCircuitBreaker;
+    
     private static final String RATE_LIMIT_PREFIX = "rate_limit:";
     private static final String GLOBAL_RATE_LIMIT_PREFIX = "global_rate_limit:";
     
+    private static final int LOCAL_FALLBACK_MAX_KEYS = 100000;
+    
+    @Value("${spring.redis.mode:standalone}")
+    private String redisMode;
+    
+    // Fallback counters, keyed like the Redis keys they stand in for
+    private final StripedLruMap<String, LocalWindow> localWindows = new StripedLruMap<>(LOCAL_FALLBACK_MAX_KEYS, 32);
+    
+    private static final Map<RateLimitAlgorithm, RedisScript<List<Long>>> SCRIPTS = new EnumMap<>(RateLimitAlgorithm.class);
+    
+    static {
+        SCRIPTS.put(RateLimitAlgorithm.FIXED_WINDOW, loadScript("fixed_window.lua"));
+        SCRIPTS.put(RateLimitAlgorithm.SLIDING_LOG, loadScript("sliding_log.lua"));
+        SCRIPTS.put(RateLimitAlgorithm.SLIDING_COUNTER, loadScript("sliding_counter.lua"));
+        SCRIPTS.put(RateLimitAlgorithm.TOKEN_BUCKET, loadScript("token_bucket.lua"));
+    }
+    
+    private static final RedisScript<List<Long>> MULTI_WINDOW_SCRIPT = loadScript("multi_window.lua");
+    private static final RedisScript<List<Long>> REQUEST_LIMITS_SCRIPT = loadScript("request_limits.lua");
+    
+    /**
+     * Entry scripts are evaluated with the shared algorithms library prepended
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static RedisScript<List<Long>> loadScript(String name) {
+        String source = readScript("algorithms.lua") + "\n" + readScript(name);
+        return (RedisScript) RedisScript.of(source, List.class);
+    }
+    
+    private static String readScript(String name) {
+        try (InputStream in = new ClassPathResource("scripts/ratelimit/" + name).getInputStream()) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load rate limit script " + name, e);
+        }
+    }
+    
     /**
      * Check if request is allowed under rate limit
      */
     public boolean isAllowed(String key, int limit, int timeWindowSeconds) {
-        String redisKey = RATE_LIMIT_PREFIX + key;
-        
+        return checkRateLimit(key, limit, timeWindowSeconds).isAllowed();
+    }
+    
+    /**
+     * Check global rate limit
+     */
+    public boolean isGloballyAllowed(String identifier, int limit, int timeWindowSeconds) {
+        return evaluate(GLOBAL_RATE_LIMIT_PREFIX + identifier, limit, timeWindowSeconds, RateLimitAlgorithm.FIXED_WINDOW).isAllowed();
+    }
+    
+    /**
+     * Count a request against the limit and return the decision together with
+     * the status used for the X-RateLimit-* headers, in one Redis round trip
+     */
+    public RateLimitStatus checkRateLimit(String key, int limit, int timeWindowSeconds) {
+        return checkRateLimit(key, limit, timeWindowSeconds, RateLimitAlgorithm.FIXED_WINDOW);
+    }
+    
+    /**
+     * Same as {@link #checkRateLimit(String, int, int)} with an explicit algorithm.
+     * Every algorithm is a single server-side script evaluation.
+     */
+    public RateLimitStatus checkRateLimit(String key, int limit, int timeWindowSeconds, RateLimitAlgorithm algorithm) {
+        return evaluate(redisKeyFor(key, algorithm), limit, timeWindowSeconds, algorithm);
+    }
+    
+    /**
+     * Run the algorithm's script: it counts the request, maintains the TTL and
+     * returns {allowed, count, seconds until reset} atomically on the server
+     */
+    private RateLimitStatus evaluate(String redisKey, int limit, int timeWindowSeconds, RateLimitAlgorithm algorithm) {
+        if (!rateLimitCircuitBreaker.allowRequest()) {
+            return evaluateLocally(redisKey, limit, timeWindowSeconds);
+        }
         try {
-            // Check if key exists first
-            Boolean keyExists = rateLimitRedisTemplate.hasKey(redisKey);
+            List<Long> result;
+            if (algorithm == RateLimitAlgorithm.SLIDING_LOG) {
+                // Each log entry needs a unique member
+                result = rateLimitRedisTemplate.execute(
+                    SCRIPTS.get(algorithm),
+                    Collections.singletonList(redisKey),
+                    String.valueOf(limit),
+                    String.valueOf(timeWindowSeconds),
+                    Long.toHexString(ThreadLocalRandom.current().nextLong())
+                );
+            } else {
+                result = rateLimitRedisTemplate.execute(
+                    SCRIPTS.get(algorithm),
+                    Collections.singletonList(redisKey),
+                    String.valueOf(limit),
+                    String.valueOf(timeWindowSeconds)
+                );
+            }
+            rateLimitCircuitBreaker.recordSuccess();
             
-            if (!keyExists) {
-                // Initialize counter with 1 and set expiration
-                rateLimitRedisTemplate.opsForValue().set(redisKey, "1");
-                rateLimitRedisTemplate.expire(redisKey, timeWindowSeconds, TimeUnit.SECONDS);
-                return true;
+            if (result == null || result.size() < 3) {
+                log.warn("Unexpected rate limit script result for key {}: {}", redisKey, result);
+                return evaluateLocally(redisKey, limit, timeWindowSeconds);
             }
             
-            // Get current count
-            String countStr = (String) rateLimitRedisTemplate.opsForValue().get(redisKey);
-            int currentCount = 0;
+            boolean allowed = result.get(0) == 1L;
+            int currentCount = result.get(1).intValue();
+            long ttl = result.get(2);
             
-            if (countStr != null) {
-                // Remove quotes if present
-                countStr = countStr.replace("\"", "").trim();
-                try {
-                    currentCount = Integer.parseInt(countStr);
-                } catch (NumberFormatException e) {
-                    log.warn("Invalid count value in Redis for key {}: {}", key, countStr);
-                    currentCount = 0;
-                }
+            if (!allowed) {
+                log.debug("Rate limit exceeded for key: {} (current: {}, limit: {})", redisKey, currentCount, limit);
             }
             
-            if (currentCount >= limit) {
-                log.debug("Rate limit exceeded for key: {} (current: {}, limit: {})", key, currentCount, limit);
-                return false;
+            return new RateLimitStatus(
+                allowed,
+                currentCount,
+                limit,
+                Math.max(0, limit - currentCount),
+                Instant.now().getEpochSecond() + (ttl > 0 ? ttl : timeWindowSeconds)
+            );
+            
+        } catch (Exception e) {
+            rateLimitCircuitBreaker.recordFailure();
+            log.error("Rate limit check failed for key: {}", redisKey, e);
+            // In case of Redis failure, count the request locally
+            return evaluateLocally(redisKey, limit, timeWindowSeconds);
+        }
+    }
+    
+    /**
+     * Update several fixed windows in one round trip. {@code admitted} requests
+     * that were already let through (e.g. by a node-local pre-filter) are always
+     * recorded; if {@code check} is set, one more request is admitted only when
+     * it fits every window. The returned statuses follow the order of {@code windows}.
+     */
+    public MultiWindowStatus checkWindows(List<WindowLimit> windows, int admitted, boolean check) {
+        List<String> keys = new ArrayList<>(windows.size());
+        Object[] args = new Object[2 + windows.size() * 2];
+        args[0] = String.valueOf(admitted);
+        args[1] = check ? "1" : "0";
+        for (int i = 0; i < windows.size(); i++) {
+            WindowLimit window = windows.get(i);
+            keys.add(window.getRedisKey());
+            args[2 + i * 2] = String.valueOf(window.getLimit());
+            args[3 + i * 2] = String.valueOf(window.getTimeWindowSeconds());
+        }
+        
+        if (!rateLimitCircuitBreaker.allowRequest()) {
+            return checkWindowsLocally(windows, admitted, check);
+        }
+        try {
+            List<Long> result = rateLimitRedisTemplate.execute(MULTI_WINDOW_SCRIPT, keys, args);
+            rateLimitCircuitBreaker.recordSuccess();
+            if (result == null || result.size() < 1 + windows.size() * 2) {
+                log.warn("Unexpected multi-window script result for keys {}: {}", keys, result);
+                return checkWindowsLocally(windows, admitted, check);
             }
             
-            // Increment counter
-            int newCount = currentCount + 1;
-            rateLimitRedisTemplate.opsForValue().set(redisKey, String.valueOf(newCount));
-            return true;
+            long now = Instant.now().getEpochSecond();
+            List<RateLimitStatus> statuses = new ArrayList<>(windows.size());
+            for (int i = 0; i < windows.size(); i++) {
+                WindowLimit window = windows.get(i);
+                int currentCount = result.get(1 + i * 2).intValue();
+                long ttl = result.get(2 + i * 2);
+                statuses.add(new RateLimitStatus(
+                    currentCount <= window.getLimit(),
+                    currentCount,
+                    window.getLimit(),
+                    Math.max(0, window.getLimit() - currentCount),
+                    now + (ttl > 0 ? ttl : window.getTimeWindowSeconds())
+                ));
+            }
+            return new MultiWindowStatus(result.get(0) == 1L, statuses);
             
         } catch (Exception e) {
-            log.error("Rate limit check failed for key: {}", key, e);
-            // In case of Redis failure, allow the request
-            return true;
+            rateLimitCircuitBreaker.recordFailure();
+            log.error("Multi-window rate limit check failed for keys: {}", keys, e);
+            // In case of Redis failure, count the requests locally
+            return checkWindowsLocally(windows, admitted, check);
         }
     }
     
     /**
-     * Check global rate limit
+     * Evaluate every limit that applies to one request in a single round trip:
+     * the global windows (with the same {@code admitted}/{@code check} semantics
+     * as {@link #checkWindows}) and then the endpoint's @RateLimit, which is
+     * only counted when the global windows admit the request.
      */
-    public boolean isGloballyAllowed(String identifier, int limit, int timeWindowSeconds) {
-        String redisKey = GLOBAL_RATE_LIMIT_PREFIX + identifier;
+    public RequestLimitStatus checkRequest(List<WindowLimit> windows, int admitted, boolean check,
+                                           String endpointKey, RateLimit endpointLimit) {
+        RateLimitAlgorithm algorithm = endpointLimit.algorithm();
+        List<String> keys = new ArrayList<>(windows.size() + 1);
+        Object[] args = new Object[6 + windows.size() * 2];
+        args[0] = String.valueOf(admitted);
+        args[1] = check ? "1" : "0";
+        args[2] = algorithm.name();
+        args[3] = String.valueOf(endpointLimit.value());
+        args[4] = String.valueOf(endpointLimit.timeWindow());
+        args[5] = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        for (int i = 0; i < windows.size(); i++) {
+            WindowLimit window = windows.get(i);
+            keys.add(window.getRedisKey());
+            args[6 + i * 2] = String.valueOf(window.getLimit());
+            args[7 + i * 2] = String.valueOf(window.getTimeWindowSeconds());
+        }
+        keys.add(redisKeyFor(endpointKey, algorithm));
         
+        if ("cluster".equalsIgnoreCase(redisMode) && !sameSlot(keys)) {
+            // A script may only touch keys of one cluster slot, e.g. a per-user
+            // endpoint limit next to per-IP global windows: use two calls
+            MultiWindowStatus global = checkWindows(windows, admitted, check);
+            RateLimitStatus endpoint = global.isAllowed()
+                ? checkRateLimit(endpointKey, endpointLimit.value(), endpointLimit.timeWindow(), algorithm)
+                : null;
+            return new RequestLimitStatus(global.isAllowed(), global.getWindows(), endpoint);
+        }
+        if (!rateLimitCircuitBreaker.allowRequest()) {
+            return checkRequestLocally(windows, admitted, check, endpointKey, endpointLimit);
+        }
         try {
-            // Check if key exists first
-            Boolean keyExists = rateLimitRedisTemplate.hasKey(redisKey);
+            List<Long> result = rateLimitRedisTemplate.execute(REQUEST_LIMITS_SCRIPT, keys, args);
+            rateLimitCircuitBreaker.recordSuccess();
+            if (result == null || result.size() < 4 + windows.size() * 2) {
+                log.warn("Unexpected request limits script result for keys {}: {}", keys, result);
+                return checkRequestLocally(windows, admitted, check, endpointKey, endpointLimit);
+            }
             
-            if (!keyExists) {
-                // Initialize counter with 1 and set expiration
-                rateLimitRedisTemplate.opsForValue().set(redisKey, "1");
-                rateLimitRedisTemplate.expire(redisKey, timeWindowSeconds, TimeUnit.SECONDS);
-                return true;
+            long now = Instant.now().getEpochSecond();
+            List<RateLimitStatus> statuses = new ArrayList<>(windows.size());
+            for (int i = 0; i < windows.size(); i++) {
+                WindowLimit window = windows.get(i);
+                int currentCount = result.get(4 + i * 2).intValue();
+                long ttl = result.get(5 + i * 2);
+                statuses.add(new RateLimitStatus(
+                    currentCount <= window.getLimit(),
+                    currentCount,
+                    window.getLimit(),
+                    Math.max(0, window.getLimit() - currentCount),
+                    now + (ttl > 0 ? ttl : window.getTimeWindowSeconds())
+                ));
             }
             
-            // Get current count
-            String countStr = (String) rateLimitRedisTemplate.opsForValue().get(redisKey);
-            int currentCount = 0;
+            boolean globalAllowed = result.get(0) == 1L;
+            RateLimitStatus endpoint = null;
+            if (globalAllowed) {
+                int endpointCount = result.get(2).intValue();
+                long reset = result.get(3);
+                endpoint = new RateLimitStatus(
+                    result.get(1) == 1L,
+                    endpointCount,
+                    endpointLimit.value(),
+                    Math.max(0, endpointLimit.value() - endpointCount),
+                    now + (reset > 0 ? reset : endpointLimit.timeWindow())
+                );
+            }
+            return new RequestLimitStatus(globalAllowed, statuses, endpoint);
             
-            if (countStr != null) {
-                // Remove quotes if present
-                countStr = countStr.replace("\"", "").trim();
-                try {
-                    currentCount = Integer.parseInt(countStr);
-                } catch (NumberFormatException e) {
-                    log.warn("Invalid count value in Redis for global key {}: {}", identifier, countStr);
-                    currentCount = 0;
+        } catch (Exception e) {
+            rateLimitCircuitBreaker.recordFailure();
+            log.error("Request rate limit check failed for keys: {}", keys, e);
+            // In case of Redis failure, count the request locally
+            return checkRequestLocally(windows, admitted, check, endpointKey, endpointLimit);
+        }
+    }
+    
+    /**
+     * Node-local stand-in for {@link #evaluate}: every algorithm is approximated
+     * by a fixed window
+     */
+    private RateLimitStatus evaluateLocally(String redisKey, int limit, int timeWindowSeconds) {
+        LocalWindow window = localWindows.computeIfAbsent(redisKey, k -> new LocalWindow(timeWindowSeconds));
+        synchronized (window) {
+            long now = System.currentTimeMillis();
+            boolean allowed = window.count(now) + 1 <= limit;
+            int count = allowed ? window.add(1, now) : window.count(now);
+            return new RateLimitStatus(allowed, count, limit, Math.max(0, limit - count), window.resetAtSeconds());
+        }
+    }
+    
+    /**
+     * Node-local stand-in for {@link #checkWindows} with the same semantics
+     */
+    private MultiWindowStatus checkWindowsLocally(List<WindowLimit> windows, int admitted, boolean check) {
+        long now = System.currentTimeMillis();
+        List<LocalWindow> locals = new ArrayList<>(windows.size());
+        boolean allowed = true;
+        for (WindowLimit window : windows) {
+            LocalWindow local = localWindows.computeIfAbsent(window.getRedisKey(), k -> new LocalWindow(window.getTimeWindowSeconds()));
+            locals.add(local);
+            synchronized (local) {
+                if (check && local.count(now) + admitted + 1 > window.getLimit()) {
+                    allowed = false;
                 }
             }
-            
-            if (currentCount >= limit) {
-                log.debug("Global rate limit exceeded for identifier: {} (current: {}, limit: {})", identifier, currentCount, limit);
+        }
+        
+        int delta = admitted + (check && allowed ? 1 : 0);
+        List<RateLimitStatus> statuses = new ArrayList<>(windows.size());
+        for (int i = 0; i < windows.size(); i++) {
+            WindowLimit window = windows.get(i);
+            LocalWindow local = locals.get(i);
+            synchronized (local) {
+                int count = local.add(delta, now);
+                statuses.add(new RateLimitStatus(
+                    count <= window.getLimit(),
+                    count,
+                    window.getLimit(),
+                    Math.max(0, window.getLimit() - count),
+                    local.resetAtSeconds()
+                ));
+            }
+        }
+        return new MultiWindowStatus(!check || allowed, statuses);
+    }
+    
+    /**
+     * Node-local stand-in for {@link #checkRequest} with the same semantics
+     */
+    private RequestLimitStatus checkRequestLocally(List<WindowLimit> windows, int admitted, boolean check,
+                                                   String endpointKey, RateLimit endpointLimit) {
+        MultiWindowStatus global = checkWindowsLocally(windows, admitted, check);
+        RateLimitStatus endpoint = null;
+        if (global.isAllowed()) {
+            endpoint = evaluateLocally(redisKeyFor(endpointKey, endpointLimit.algorithm()),
+                endpointLimit.value(), endpointLimit.timeWindow());
+        }
+        return new RequestLimitStatus(global.isAllowed(), global.getWindows(), endpoint);
+    }
+    
+    private static boolean sameSlot(List<String> keys) {
+        int slot = ClusterSlotHashUtil.calculateSlot(keys.get(0));
+        for (int i = 1; i < keys.size(); i++) {
+            if (ClusterSlotHashUtil.calculateSlot(keys.get(i)) != slot) {
                 return false;
             }
-            
-            // Increment counter
-            int newCount = currentCount + 1;
-            rateLimitRedisTemplate.opsForValue().set(redisKey, String.valueOf(newCount));
-            return true;
-            
-        } catch (Exception e) {
-            log.error("Global rate limit check failed for identifier: {}", identifier, e);
-            // In case of Redis failure, allow the request
-            return true;
+        }
+        return true;
+    }
+    
+    /**
+     * Each algorithm keeps its own data type, so keys are namespaced per algorithm;
+     * fixed-window keys keep their original name
+     */
+    private String redisKeyFor(String key, RateLimitAlgorithm algorithm) {
+        switch (algorithm) {
+            case SLIDING_LOG: return RATE_LIMIT_PREFIX + "log:" + key;
+            case SLIDING_COUNTER: return RATE_LIMIT_PREFIX + "swc:" + key;
+            case TOKEN_BUCKET: return RATE_LIMIT_PREFIX + "tb:" + key;
+            default: return RATE_LIMIT_PREFIX + key;
         }
     }
     
@@ -124,6 +403,9 @@ public class RateLimitService {
     public RateLimitStatus getRateLimitStatus(String key, int limit, int timeWindowSeconds) {
         String redisKey = RATE_LIMIT_PREFIX + key;
         
+        if (!rateLimitCircuitBreaker.allowRequest()) {
+            return localStatus(redisKey, limit, timeWindowSeconds);
+        }
         try {
             // Get current count as String
             String countStr = (String) rateLimitRedisTemplate.opsForValue().get(redisKey);
@@ -141,6 +423,7 @@ public class RateLimitService {
             }
             
             Long ttl = rateLimitRedisTemplate.getExpire(redisKey);
+            rateLimitCircuitBreaker.recordSuccess();
             long resetTime = ttl != null && ttl > 0 ? 
                 Instant.now().getEpochSecond() + ttl : 
                 Instant.now().getEpochSecond() + timeWindowSeconds;
@@ -153,42 +436,172 @@ public class RateLimitService {
             );
             
         } catch (Exception e) {
+            rateLimitCircuitBreaker.recordFailure();
             log.error("Failed to get rate limit status for key: {}", key, e);
+            return localStatus(redisKey, limit, timeWindowSeconds);
+        }
+    }
+    
+    private RateLimitStatus localStatus(String redisKey, int limit, int timeWindowSeconds) {
+        LocalWindow window = localWindows.get(redisKey);
+        if (window == null) {
             return new RateLimitStatus(0, limit, limit, Instant.now().getEpochSecond() + timeWindowSeconds);
         }
+        synchronized (window) {
+            int count = window.count(System.currentTimeMillis());
+            return new RateLimitStatus(count, limit, Math.max(0, limit - count), window.resetAtSeconds());
+        }
     }
     
     /**
      * Reset rate limit for a key
      */
     public void resetRateLimit(String key) {
-        String redisKey = RATE_LIMIT_PREFIX + key;
+        List<String> redisKeys = new ArrayList<>();
+        for (RateLimitAlgorithm algorithm : RateLimitAlgorithm.values()) {
+            redisKeys.add(redisKeyFor(key, algorithm));
+        }
+        for (String redisKey : redisKeys) {
+            localWindows.remove(redisKey);
+        }
         try {
-            rateLimitRedisTemplate.delete(redisKey);
+            rateLimitRedisTemplate.delete(redisKeys);
         } catch (Exception e) {
             log.error("Failed to reset rate limit for key: {}", key, e);
         }
     }
     
+    /**
+     * Snapshot of the circuit breaker and local fallback for the debug metrics endpoint
+     */
+    public Map<String, Object> getFallbackStats() {
+        Map<String, Object> stats = new HashMap<>(rateLimitCircuitBreaker.getStats());
+        stats.put("local_fallback_keys", localWindows.size());
+        return stats;
+    }
+    
+    /**
+     * Fixed-window counter used while Redis is unavailable; guarded by its own monitor
+     */
+    private static final class LocalWindow {
+        private final long windowMillis;
+        private long windowStart;
+        private int count;
+        
+        LocalWindow(int timeWindowSeconds) {
+            this.windowMillis = timeWindowSeconds * 1000L;
+            this.windowStart = System.currentTimeMillis();
+        }
+        
+        int count(long now) {
+            if (now - windowStart >= windowMillis) {
+                // Align to the window grid like the Redis fixed window's TTL would
+                windowStart = now - (now - windowStart) % windowMillis;
+                count = 0;
+            }
+            return count;
+        }
+        
+        int add(int delta, long now) {
+            count(now);
+            count += delta;
+            return count;
+        }
+        
+        long resetAtSeconds() {
+            return (windowStart + windowMillis) / 1000;
+        }
+    }
+    
     /**
      * Rate limit status data class
      */
     public static class RateLimitStatus {
+        private final boolean allowed;
         private final int currentCount;
         private final int limit;
         private final int remaining;
         private final long resetTime;
         
         public RateLimitStatus(int currentCount, int limit, int remaining, long resetTime) {
+            this(remaining > 0, currentCount, limit, remaining, resetTime);
+        }
+        
+        public RateLimitStatus(boolean allowed, int currentCount, int limit, int remaining, long resetTime) {
+            this.allowed = allowed;
             this.currentCount = currentCount;
             this.limit = limit;
             this.remaining = remaining;
             this.resetTime = resetTime;
         }
         
+        public boolean isAllowed() { return allowed; }
         public int getCurrentCount() { return currentCount; }
         public int getLimit() { return limit; }
         public int getRemaining() { return remaining; }
         public long getResetTime() { return resetTime; }
     }
+    
+    /**
+     * A fixed-window limit evaluated by {@link #checkWindows}
+     */
+    public static class WindowLimit {
+        private final String redisKey;
+        private final int limit;
+        private final int timeWindowSeconds;
+        
+        private WindowLimit(String redisKey, int limit, int timeWindowSeconds) {
+            this.redisKey = redisKey;
+            this.limit = limit;
+            this.timeWindowSeconds = timeWindowSeconds;
+        }
+        
+        /**
+         * A global window of one client; all windows of a client share its hash tag
+         */
+        public static WindowLimit global(String client, String window, int limit, int timeWindowSeconds) {
+            return new WindowLimit(GLOBAL_RATE_LIMIT_PREFIX + RateLimitKeyUtil.hashTag(client) + ":" + window,
+                limit, timeWindowSeconds);
+        }
+        
+        public String getRedisKey() { return redisKey; }
+        public int getLimit() { return limit; }
+        public int getTimeWindowSeconds() { return timeWindowSeconds; }
+    }
+    
+    /**
+     * Result of {@link #checkWindows}
+     */
+    public static class MultiWindowStatus {
+        private final boolean allowed;
+        private final List<RateLimitStatus> windows;
+        
+        public MultiWindowStatus(boolean allowed, List<RateLimitStatus> windows) {
+            this.allowed = allowed;
+            this.windows = windows;
+        }
+        
+        public boolean isAllowed() { return allowed; }
+        public List<RateLimitStatus> getWindows() { return windows; }
+    }
+    
+    /**
+     * Result of {@link #checkRequest}; the endpoint status is null when the
+     * global windows rejected the request
+     */
+    public static class RequestLimitStatus {
+        private final boolean globalAllowed;
+        private final List<RateLimitStatus> globalWindows;
+        private final RateLimitStatus endpoint;
+        
+        public RequestLimitStatus(boolean globalAllowed, List<RateLimitStatus> globalWindows, RateLimitStatus endpoint) {
+            this.globalAllowed = globalAllowed;
+            this.globalWindows = globalWindows;
+            this.endpoint = endpoint;
+        }
+        
+        public boolean isGlobalAllowed() { return globalAllowed; }
+        public List<RateLimitStatus> getGlobalWindows() { return globalWindows; }
+        public RateLimitStatus getEndpoint() { return endpoint; }
+    }
 }
@@ -8,7 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.stir.shrinkurl.entity.RefreshToken;
 import org.stir.shrinkurl.entity.User;
-import org.stir.shrinkurl.repository.RefreshTokenRepository;
+import org.stir.shrinkurl.repository.RefreshTokenStore;
 import org.stir.shrinkurl.repository.UserRepository;
 
 import jakarta.transaction.Transactional;
@@ -16,44 +16,32 @@ import jakarta.transaction.Transactional;
 @Service
 @Transactional
 public class RefreshTokenService {
-    
+
     @Autowired
-    private RefreshTokenRepository refreshTokenRepository;
-    
+    private RefreshTokenStore refreshTokenStore; // MongoDB or Redis, see auth.refresh-token.store
+
     @Autowired
     private UserRepository userRepository; // Your SQL repository
-    
+
     public Optional<RefreshToken> validateRefreshToken(String token) {
-        Optional<RefreshToken> refreshToken = refreshTokenRepository.findByToken(token);
-        
-        if (refreshToken.isPresent()) {
-            RefreshToken tokenEntity = refreshToken.get();
-            
-            // Check if token is expired (though MongoDB will auto-delete)
-            if (tokenEntity.getExpiryDate().before(new Date())) {
-                refreshTokenRepository.delete(tokenEntity);
-                return Optional.empty();
-            }
-            
-            // Verify user still exists in SQL database
-            if (!userRepository.existsById(tokenEntity.getUserId())) {
-                refreshTokenRepository.delete(tokenEntity);
-                return Optional.empty();
-            }
-            
-            return refreshToken;
+        Optional<RefreshToken> refreshToken = findUnexpired(token);
+
+        // Verify user still exists in SQL database
+        if (refreshToken.isPresent() && !userRepository.existsById(refreshToken.get().getUserId())) {
+            refreshTokenStore.deleteByToken(token);
+            return Optional.empty();
         }
-        
-        return Optional.empty();
+
+        return refreshToken;
     }
-    
+
     public RefreshToken createRefreshToken(User user) {
         // Delete any existing refresh tokens for this user
-        refreshTokenRepository.deleteByUserId(user.getId());
-        
+        refreshTokenStore.deleteByUserId(user.getId());
+
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + (30L * 24 * 60 * 60 * 1000)); // 30 days
-        
+
         RefreshToken refreshToken = RefreshToken.builder()
             .token(UUID.randomUUID().toString())
             .userId(user.getId())
@@ -61,26 +49,42 @@ public class RefreshTokenService {
             .expiryDate(expiryDate)
             .createdAt(now)
             .build();
-        
-        return refreshTokenRepository.save(refreshToken);
+
+        return refreshTokenStore.save(refreshToken);
     }
-    
+
     public Optional<User> getUserFromRefreshToken(String token) {
-        Optional<RefreshToken> refreshToken = validateRefreshToken(token);
-        
+        Optional<RefreshToken> refreshToken = findUnexpired(token);
+
         if (refreshToken.isPresent()) {
-            Long userId = refreshToken.get().getUserId();
-            return userRepository.findById(userId);
+            // The user has to be loaded anyway, so this doubles as the existence check
+            Optional<User> user = userRepository.findById(refreshToken.get().getUserId());
+            if (user.isEmpty()) {
+                refreshTokenStore.deleteByToken(token);
+            }
+            return user;
         }
-        
+
         return Optional.empty();
     }
-    
+
     public void deleteByUserId(Long userId) {
-        refreshTokenRepository.deleteByUserId(userId);
+        refreshTokenStore.deleteByUserId(userId);
     }
-    
+
     public void deleteByToken(String token) {
-        refreshTokenRepository.deleteByToken(token);
+        refreshTokenStore.deleteByToken(token);
+    }
+
+    private Optional<RefreshToken> findUnexpired(String token) {
+        Optional<RefreshToken> refreshToken = refreshTokenStore.findByToken(token);
+
+        // Check if token is expired (the store drops it eventually, MongoDB only about once a minute)
+        if (refreshToken.isPresent() && refreshToken.get().getExpiryDate().before(new Date())) {
+            refreshTokenStore.deleteByToken(token);
+            return Optional.empty();
+        }
+
+        return refreshToken;
     }
 }
@@ -0,0 +1,174 @@
+package org.stir.shrinkurl.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.stir.shrinkurl.entity.ShortCodeSequence;
+import org.stir.shrinkurl.repository.ShortCodeSequenceRepository;
+import org.stir.shrinkurl.repository.UrlRepository;
+import org.stir.shrinkurl.utils.UrlShortenerUtil;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands out short codes from blocks of sequence numbers leased from the
+ * short_code_sequences table.
+ *
+ * Each node leases {@code block-size} numbers at a time in its own short
+ * transaction, then issues codes from memory. Numbers are never handed out
+ * twice; a lease left unused when a node stops is simply skipped. Codes are
+ * the sequence number, optionally scrambled by a keyed bijection, encoded
+ * as fixed-length Base62. They are one character longer than the old CRC32
+ * codes, so the two schemes never overlap.
+ *
+ * New custom aliases of that length are refused, but ones created earlier
+ * may still be in the urls table. When a block is leased, its codes are
+ * looked up in one query and any that already exist are skipped, so
+ * creating a URL still needs no per-code existence check. This relies on
+ * urls.short_code using a binary collation (see {@code Url}): under MySQL's
+ * case-insensitive default, codes that differ only in case would collide
+ * on the unique index without showing up in that lookup.
+ */
+@Service
+@Slf4j
+public class ShortCodeAllocator {
+
+    static final String SEQUENCE_NAME = "url_short_code";
+
+    @Autowired
+    private ShortCodeSequenceRepository sequenceRepository;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UrlShortenerUtil urlShortenerUtil;
+
+    @Value("${url.short-code.block-size:1000}")
+    private int blockSize;
+
+    @Value("${url.short-code.scramble:true}")
+    private boolean scramble;
+
+    @Value("${url.short-code.scramble-key:6180339887}")
+    private long scrambleKey;
+
+    private TransactionTemplate leaseTransaction;
+
+    // Current lease [next, end) and its codes already in use; guarded by this
+    private long next;
+    private long end;
+    private Set<String> takenInBlock = Set.of();
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        leaseTransaction = new TransactionTemplate(transactionManager);
+        // Commit the lease independently of the URL creation that triggered it
+        leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Next unused generated short code
+     */
+    public synchronized String nextShortCode() {
+        while (true) {
+            if (next >= end) {
+                leaseBlock();
+            }
+            String code = encode(next++);
+            if (!takenInBlock.contains(code)) {
+                issued.increment();
+                return code;
+            }
+            // Taken by a custom alias created before aliases of this length were refused
+            skipped.increment();
+        }
+    }
+
+    /**
+     * Whether a code has the shape of a generated code; custom aliases of this
+     * shape are refused because the allocator may issue them later
+     */
+    public boolean isGeneratedCodeShape(String code) {
+        return code.length() == UrlShortenerUtil.SEQUENCE_CODE_LENGTH;
+    }
+
+    /**
+     * Snapshot of allocator counters for the debug metrics endpoint
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("block_size", blockSize);
+        stats.put("scramble", scramble);
+        stats.put("issued", issued.sum());
+        stats.put("leases", leases.sum());
+        stats.put("skipped_existing", skipped.sum());
+        stats.put("remaining_in_block", end - next);
+        return stats;
+    }
+
+    private void leaseBlock() {
+        Long start;
+        try {
+            start = leaseTransaction.execute(status -> reserve());
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the sequence row first; lease from it
+            start = leaseTransaction.execute(status -> reserve());
+        }
+
+        if (start + blockSize > UrlShortenerUtil.SEQUENCE_SPACE) {
+            throw new IllegalStateException("Short code sequence exhausted");
+        }
+        next = start;
+        end = start + blockSize;
+        takenInBlock = findExisting(start, end);
+        leases.increment();
+        log.info("Leased short code block [{}, {}), {} codes already in use", next, end, takenInBlock.size());
+    }
+
+    private Set<String> findExisting(long start, long end) {
+        List<String> codes = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            codes.add(encode(sequence));
+        }
+        Set<String> existing = new HashSet<>();
+        for (Object[] row : urlRepository.findIdsByShortCodes(codes)) {
+            existing.add((String) row[0]);
+        }
+        return existing;
+    }
+
+    private String encode(long sequence) {
+        long value = scramble ? urlShortenerUtil.scramble(sequence, scrambleKey) : sequence;
+        return urlShortenerUtil.encodeSequence(value);
+    }
+
+    private Long reserve() {
+        ShortCodeSequence sequence = sequenceRepository.findByNameForUpdate(SEQUENCE_NAME)
+            .orElseGet(() -> sequenceRepository.saveAndFlush(new ShortCodeSequence(SEQUENCE_NAME, 0L)));
+        long start = sequence.getNextValue();
+        sequence.setNextValue(start + blockSize);
+        sequenceRepository.save(sequence);
+        return start;
+    }
+}
@@ -0,0 +1,166 @@
+package org.stir.shrinkurl.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.stir.shrinkurl.cache.ScalableBloomFilter;
+import org.stir.shrinkurl.repository.UrlRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bloom filter over every short code in the urls table, used to answer
+ * "this code does not exist" without a database query.
+ *
+ * The filter is loaded in the background at startup, in ID order, and then
+ * catches up with rows created by other nodes on a fixed delay. Codes
+ * created on this node are added immediately. Until the first load
+ * completes every code is reported as possibly present, so callers fall
+ * back to the database as before.
+ *
+ * A code created on another node is unknown here until the next catch-up.
+ * The redirect path only consults the filter after Redis answered with a
+ * miss (never on a Redis error or while its circuit breaker is open), and
+ * the creating node writes the mapping to Redis straight away, so that
+ * window is only visible when Redis has lost the mapping.
+ */
+@Service
+@Slf4j
+public class ShortCodeFilter {
+
+    private static final long CATCH_UP_OVERLAP = 1000;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Value("${url.short-code.filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${url.short-code.filter.expected-codes:1000000}")
+    private long expectedCodes;
+
+    @Value("${url.short-code.filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${url.short-code.filter.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    @Value("${url.short-code.filter.refresh-interval-ms:30000}")
+    private long refreshIntervalMs;
+
+    private ScalableBloomFilter filter;
+    private ScheduledExecutorService loader;
+
+    private volatile boolean ready;
+    // Highest urls.id loaded so far; only touched by the loader thread
+    private long lastLoadedId;
+
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder possibleHits = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        filter = new ScalableBloomFilter(expectedCodes, falsePositiveRate);
+        if (!enabled) {
+            return;
+        }
+
+        loader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "short-code-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loader.scheduleWithFixedDelay(this::loadSafely, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+    }
+
+    /**
+     * False only if the code definitely does not exist in the database
+     */
+    public boolean mightExist(String shortCode) {
+        if (!enabled || !ready) {
+            return true;
+        }
+
+        if (filter.mightContain(shortCode)) {
+            possibleHits.increment();
+            return true;
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    /**
+     * Record a code created on this node
+     */
+    public void add(String shortCode) {
+        if (enabled) {
+            filter.add(shortCode);
+        }
+    }
+
+    /**
+     * Snapshot of filter counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("approximate_codes", filter.getApproximateCount());
+        stats.put("segments", filter.getSegmentCount());
+        stats.put("memory_bytes", filter.getBitSize() / 8);
+        stats.put("definite_misses", definiteMisses.sum());
+        stats.put("possible_hits", possibleHits.sum());
+        return stats;
+    }
+
+    private void loadSafely() {
+        try {
+            long start = System.currentTimeMillis();
+            int loaded = loadNewCodes();
+            if (!ready) {
+                ready = true;
+                log.info("Short code filter loaded {} codes in {}ms", loaded, System.currentTimeMillis() - start);
+            } else if (loaded > 0) {
+                log.debug("Short code filter caught up with {} new codes", loaded);
+            }
+        } catch (Exception e) {
+            // Stay (or remain) permissive; the next run resumes from lastLoadedId
+            log.warn("Short code filter load failed: {}", e.getMessage());
+        }
+    }
+
+    private int loadNewCodes() {
+        int loaded = 0;
+        // Re-read a few recent IDs: a transaction may commit a lower ID after a higher one was seen
+        long afterId = Math.max(0, lastLoadedId - CATCH_UP_OVERLAP);
+        List<Object[]> rows;
+        do {
+            rows = urlRepository.findShortCodesAfterId(afterId, PageRequest.of(0, loadBatchSize));
+            for (Object[] row : rows) {
+                filter.add((String) row[1]);
+                afterId = (Long) row[0];
+            }
+            lastLoadedId = Math.max(lastLoadedId, afterId);
+            loaded += rows.size();
+        } while (rows.size() == loadBatchSize);
+        return loaded;
+    }
+}
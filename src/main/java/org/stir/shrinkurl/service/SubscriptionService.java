@@ -35,6 +35,9 @@ public class SubscriptionService {
     @Autowired
     private UrlAnalyticsRepository urlAnalyticsRepository;
     
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+    
     @Value("${subscription.trial.days:7}")
     private int trialDays;
     
@@ -51,6 +54,7 @@ public class SubscriptionService {
             .build();
         
         subscriptionRepository.save(subscription);
+        userSnapshotCache.invalidate(user.getId());
         log.info("Initialized free subscription for user: {}", user.getEmail());
     }
     
@@ -79,6 +83,7 @@ public class SubscriptionService {
         currentSubscription.setAutoRenew(true);
         
         // Save the updated subscription
+        userSnapshotCache.invalidate(user.getId());
         return subscriptionRepository.save(currentSubscription);
     }
     
@@ -112,6 +117,7 @@ public class SubscriptionService {
         subscription.setEndDate(calculateEndDateForPlan(newStartDate, subscription.getPlan()));
         subscription.setAutoRenew(true);
         
+        userSnapshotCache.invalidate(subscription.getUser().getId());
         return subscriptionRepository.save(subscription);
     }
     
@@ -123,12 +129,14 @@ public class SubscriptionService {
         subscription.setStatus(SubscriptionStatus.CANCELLED);
         subscription.setCancellationReason("Payment failed: " + reason);
         subscriptionRepository.save(subscription);
+        userSnapshotCache.invalidate(subscription.getUser().getId());
     }
     
     // Cancel subscription
     public void cancelSubscription(Subscription subscription, String reason) {
         subscription.cancel(reason);
         subscriptionRepository.save(subscription);
+        userSnapshotCache.invalidate(subscription.getUser().getId());
         
         log.info("Subscription cancelled for user: {}", subscription.getUser().getEmail());
     }
@@ -160,6 +168,7 @@ public class SubscriptionService {
             .build();
         
         subscriptionRepository.save(trial);
+        userSnapshotCache.invalidate(user.getId());
         log.info("Trial activated for user: {}", user.getEmail());
     }
     
@@ -0,0 +1,315 @@
+package org.stir.shrinkurl.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.stir.shrinkurl.cache.SingleFlight;
+import org.stir.shrinkurl.cache.StripedLruMap;
+import org.stir.shrinkurl.dto.TokenPair;
+import org.stir.shrinkurl.entity.User;
+import org.stir.shrinkurl.utils.JwtUtil;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rotates a refresh token into a new token pair, once per token.
+ *
+ * When an access token expires, every request the browser has in flight
+ * (parallel tabs, XHRs) arrives with the same refresh token cookie. Those
+ * concurrent refreshes share a single rotation: one lookup, and one delete
+ * and insert of the user's refresh token. The new pair is then remembered
+ * for a short reuse window, so requests that were sent with the old cookie
+ * just before it was replaced get the same pair instead of failing against
+ * the deleted token and logging the user out.
+ *
+ * Within a node, refreshes are coalesced in memory. Behind a load balancer
+ * without sticky sessions the same browser's requests reach several nodes,
+ * so the rotation is also recorded in the session Redis (see RedisConfig)
+ * under {@code token_rotation:<SHA-256 of the old token>}: the first node
+ * claims the key with SET NX, and the others wait for it to publish the new
+ * pair there for the reuse window. The pair is published encrypted
+ * (AES-GCM) with a key derived from the old refresh token, so only a caller
+ * that presents the old token can read it; reading Redis yields neither the
+ * old token nor the new pair. If Redis is unavailable each node rotates on
+ * its own, as it does with {@code jwt.refresh.shared-rotation.enabled=false}.
+ */
+@Service
+@Slf4j
+public class TokenRefreshService {
+
+    static final String ROTATION_PREFIX = "token_rotation:";
+
+    // Value of a claimed rotation key until the new pair is published
+    private static final String PENDING = "pending";
+
+    private static final long WAIT_STEP_MS = 20;
+
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    // Keeps the encryption key independent of the Redis key, which is the digest of the token alone
+    private static final String KEY_CONTEXT = "token_rotation_key:";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    @Qualifier("sessionRedisTemplate")
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${jwt.refresh.reuse-window-seconds:10}")
+    private long reuseWindowSeconds;
+
+    @Value("${jwt.refresh.reuse-cache-size:10000}")
+    private int reuseCacheSize;
+
+    @Value("${jwt.refresh.shared-rotation.enabled:true}")
+    private boolean sharedRotation;
+
+    // How long another node waits for the claiming node to publish the pair
+    @Value("${jwt.refresh.shared-rotation.wait-ms:2000}")
+    private long sharedWaitMs;
+
+    private final SingleFlight<String, Optional<TokenPair>> rotations = new SingleFlight<>();
+    private StripedLruMap<String, Rotation> recentRotations;
+
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder sharedReused = new LongAdder();
+    private final LongAdder sharedFailures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        recentRotations = new StripedLruMap<>(reuseCacheSize, 16);
+    }
+
+    /**
+     * New token pair for a refresh token, or empty if the token is unknown or expired
+     */
+    public Optional<TokenPair> refresh(String refreshToken) {
+        TokenPair recent = recentRotation(refreshToken);
+        if (recent != null) {
+            return Optional.of(recent);
+        }
+        return rotations.execute(refreshToken, () -> rotate(refreshToken));
+    }
+
+    /**
+     * Snapshot of rotation counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rotations", rotations.getExecutionCount());
+        stats.put("coalesced", rotations.getCoalescedCount());
+        stats.put("reused", reused.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("in_flight", rotations.getInFlightCount());
+        stats.put("shared_rotation", sharedRotation);
+        stats.put("shared_reused", sharedReused.sum());
+        stats.put("shared_failures", sharedFailures.sum());
+        return stats;
+    }
+
+    private Optional<TokenPair> rotate(String refreshToken) {
+        // A rotation may have finished between the caller's check and this load
+        TokenPair recent = recentRotation(refreshToken);
+        if (recent != null) {
+            return Optional.of(recent);
+        }
+
+        String sharedKey = sharedRotation ? ROTATION_PREFIX + JwtUtil.digestHex(refreshToken) : null;
+        if (sharedKey != null && !claim(sharedKey)) {
+            // Another node is rotating this token, or already has
+            TokenPair shared = awaitShared(sharedKey, refreshToken);
+            if (shared != null) {
+                sharedReused.increment();
+                remember(refreshToken, shared);
+                return Optional.of(shared);
+            }
+        }
+
+        Optional<User> user = refreshTokenService.getUserFromRefreshToken(refreshToken);
+        if (user.isEmpty()) {
+            rejected.increment();
+            if (sharedKey != null) {
+                release(sharedKey);
+            }
+            return Optional.empty();
+        }
+
+        // Replaces the user's refresh token in the refresh token store
+        TokenPair tokens = jwtUtil.generateTokens(user.get());
+        remember(refreshToken, tokens);
+        if (sharedKey != null) {
+            publish(sharedKey, refreshToken, tokens);
+        }
+        log.debug("Rotated refresh token for user {}", user.get().getId());
+        return Optional.of(tokens);
+    }
+
+    private void remember(String refreshToken, TokenPair tokens) {
+        recentRotations.put(refreshToken,
+            new Rotation(tokens, System.currentTimeMillis() + reuseWindowSeconds * 1000));
+    }
+
+    private TokenPair recentRotation(String refreshToken) {
+        Rotation rotation = recentRotations.get(refreshToken);
+        if (rotation == null) {
+            return null;
+        }
+        if (rotation.reusableUntilMillis <= System.currentTimeMillis()) {
+            recentRotations.remove(refreshToken, rotation);
+            return null;
+        }
+        reused.increment();
+        return rotation.tokens;
+    }
+
+    /**
+     * Claim the rotation for this node; true if it is ours to do (also when
+     * Redis fails, so the refresh still works on its own)
+     */
+    private boolean claim(String key) {
+        try {
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(key, PENDING,
+                Duration.ofMillis(sharedWaitMs + reuseWindowSeconds * 1000));
+            return !Boolean.FALSE.equals(claimed);
+        } catch (Exception e) {
+            sharedFailures.increment();
+            log.debug("Shared rotation claim failed: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Pair published by the node that claimed the rotation, or null if it
+     * gave up, failed or did not publish within the wait
+     */
+    private TokenPair awaitShared(String key, String refreshToken) {
+        long deadline = System.currentTimeMillis() + sharedWaitMs;
+        try {
+            while (true) {
+                Object value = redisTemplate.opsForValue().get(key);
+                if (value == null) {
+                    return null;
+                }
+                if (!PENDING.equals(value.toString())) {
+                    return open(value.toString(), refreshToken);
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    return null;
+                }
+                Thread.sleep(WAIT_STEP_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            sharedFailures.increment();
+            log.debug("Shared rotation read failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void publish(String key, String refreshToken, TokenPair tokens) {
+        try {
+            redisTemplate.opsForValue().set(key, seal(tokens, refreshToken), Duration.ofSeconds(Math.max(1, reuseWindowSeconds)));
+        } catch (Exception e) {
+            sharedFailures.increment();
+            log.debug("Shared rotation publish failed: {}", e.getMessage());
+        }
+    }
+
+    private void release(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            sharedFailures.increment();
+            log.debug("Shared rotation release failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Base64 of IV and AES-GCM ciphertext of the pair, keyed by the old refresh token
+     */
+    static String seal(TokenPair tokens, String refreshToken) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_BYTES];
+        RANDOM.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.ENCRYPT_MODE, rotationKey(refreshToken), new GCMParameterSpec(TAG_BITS, iv));
+        byte[] sealed = cipher.doFinal(encode(tokens).getBytes(StandardCharsets.UTF_8));
+
+        byte[] value = new byte[IV_BYTES + sealed.length];
+        System.arraycopy(iv, 0, value, 0, IV_BYTES);
+        System.arraycopy(sealed, 0, value, IV_BYTES, sealed.length);
+        return Base64.getEncoder().encodeToString(value);
+    }
+
+    /**
+     * Pair sealed by {@link #seal}; fails if the value was not sealed with this refresh token
+     */
+    static TokenPair open(String value, String refreshToken) throws GeneralSecurityException {
+        byte[] data = Base64.getDecoder().decode(value);
+        if (data.length <= IV_BYTES) {
+            return null;
+        }
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, rotationKey(refreshToken), new GCMParameterSpec(TAG_BITS, data, 0, IV_BYTES));
+        return decode(new String(cipher.doFinal(data, IV_BYTES, data.length - IV_BYTES), StandardCharsets.UTF_8));
+    }
+
+    private static SecretKeySpec rotationKey(String refreshToken) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return new SecretKeySpec(sha256.digest((KEY_CONTEXT + refreshToken).getBytes(StandardCharsets.UTF_8)), "AES");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // JWTs and refresh tokens (UUIDs) never contain a space
+    private static String encode(TokenPair tokens) {
+        return tokens.getAccessToken() + " " + tokens.getRefreshToken();
+    }
+
+    private static TokenPair decode(String value) {
+        int split = value.indexOf(' ');
+        return split > 0 ? new TokenPair(value.substring(0, split), value.substring(split + 1)) : null;
+    }
+
+    /**
+     * Token pair a refresh token was rotated into, and how long it may be handed out again
+     */
+    private static final class Rotation {
+        private final TokenPair tokens;
+        private final long reusableUntilMillis;
+
+        Rotation(TokenPair tokens, long reusableUntilMillis) {
+            this.tokens = tokens;
+            this.reusableUntilMillis = reusableUntilMillis;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.stir.shrinkurl.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.stir.shrinkurl.repository.UrlRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Marks expired URLs inactive off the redirect path.
+ *
+ * Redirects never write: when a lookup finds an expired URL it only hands the
+ * ID to {@link #markExpired(Long)} and answers "not found" (the caches get a
+ * tombstone). A background thread deactivates the queued IDs in one UPDATE
+ * every drain interval, and every sweep interval it also deactivates any
+ * expired URLs nobody looked up, in batches. If the queue is full an ID is
+ * dropped and left to the next sweep; until then lookups still treat the URL
+ * as expired because they check the expiry time themselves.
+ */
+@Service
+@Slf4j
+public class UrlExpirySweeper {
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${url.expiry.queue-size:10000}")
+    private int queueSize;
+
+    @Value("${url.expiry.drain-interval-ms:1000}")
+    private long drainIntervalMs;
+
+    @Value("${url.expiry.sweep-interval-ms:300000}")
+    private long sweepIntervalMs;
+
+    @Value("${url.expiry.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    private BlockingQueue<Long> pending;
+    private ScheduledExecutorService sweeper;
+    private TransactionTemplate transactionTemplate;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder deactivated = new LongAdder();
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        pending = new ArrayBlockingQueue<>(queueSize);
+        // Read-write, so it always runs on the primary
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "url-expiry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::drainSafely, drainIntervalMs, drainIntervalMs, TimeUnit.MILLISECONDS);
+        sweeper.scheduleWithFixedDelay(this::sweepSafely, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("URL expiry sweeper started (drain every {}ms, sweep every {}ms)", drainIntervalMs, sweepIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdown();
+        try {
+            if (!sweeper.awaitTermination(5, TimeUnit.SECONDS)) {
+                sweeper.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Deactivate what redirects already found; the rest waits for the next start's sweep
+        drainSafely();
+    }
+
+    /**
+     * Queue an expired URL for deactivation; never blocks the caller
+     */
+    public void markExpired(Long urlId) {
+        if (pending.offer(urlId)) {
+            queued.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Deactivate every expired URL in batches; returns how many were deactivated
+     */
+    public int sweep() {
+        int total = 0;
+        LocalDateTime now = LocalDateTime.now();
+        while (true) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<Long> ids = urlRepository.findExpiredIds(now, PageRequest.of(0, sweepBatchSize));
+                return ids.isEmpty() ? -1 : urlRepository.deactivateAll(ids);
+            });
+            // Deactivated rows drop out of the query, so the first page is always the next batch
+            if (count == null || count <= 0) {
+                break;
+            }
+            total += count;
+            deactivated.add(count);
+        }
+        sweeps.increment();
+        if (total > 0) {
+            log.info("Deactivated {} expired URLs", total);
+        }
+        return total;
+    }
+
+    /**
+     * Snapshot of sweeper counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("queued", queued.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("deactivated", deactivated.sum());
+        stats.put("sweeps", sweeps.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    private void drainSafely() {
+        List<Long> drained = new ArrayList<>();
+        pending.drainTo(drained);
+        if (drained.isEmpty()) {
+            return;
+        }
+        // Several redirects may have reported the same URL before its tombstone was cached
+        Set<Long> ids = new LinkedHashSet<>(drained);
+        try {
+            Integer count = transactionTemplate.execute(status -> urlRepository.deactivateAll(ids));
+            deactivated.add(count != null ? count : 0);
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("Failed to deactivate {} expired URLs, leaving them to the next sweep: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("Expired URL sweep failed: {}", e.getMessage());
+        }
+    }
+}
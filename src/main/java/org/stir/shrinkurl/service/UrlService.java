@@ -2,9 +2,19 @@ package org.stir.shrinkurl.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.stir.shrinkurl.cache.CacheRefreshPolicy;
+import org.stir.shrinkurl.cache.CircuitBreaker;
+import org.stir.shrinkurl.cache.LocalUrlCache;
+import org.stir.shrinkurl.cache.SingleFlight;
+import org.stir.shrinkurl.cache.UrlMappingStore;
+import org.stir.shrinkurl.config.RedisPoolMonitor;
 import org.stir.shrinkurl.entity.Url;
 import org.stir.shrinkurl.entity.UrlAnalytics;
 import org.stir.shrinkurl.entity.User;
@@ -13,13 +23,22 @@ import org.stir.shrinkurl.repository.UrlAnalyticsRepository;
 import org.stir.shrinkurl.repository.UrlRepository;
 import org.stir.shrinkurl.utils.UrlShortenerUtil;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @Slf4j
@@ -35,10 +54,71 @@ public class UrlService {
     private UrlShortenerUtil urlShortenerUtil;
     
     @Autowired
-    @Qualifier("urlMappingRedisTemplate")
-    private RedisTemplate<String, Object> urlMappingRedisTemplate;
+    private ShortCodeAllocator shortCodeAllocator;
     
-    private static final String REDIS_URL_PREFIX = "url:";
+    @Autowired
+    private ShortCodeFilter shortCodeFilter;
+    
+    @Autowired
+    private UrlMappingStore urlMappingStore;
+    
+    @Autowired
+    private LocalUrlCache localUrlCache;
+    
+    @Autowired
+    private ClickTrackingService clickTrackingService;
+    
+    @Autowired
+    private CacheRefreshPolicy cacheRefreshPolicy;
+    
+    @Autowired
+    private RedisPoolMonitor redisPoolMonitor;
+    
+    @Autowired
+    private UrlExpirySweeper urlExpirySweeper;
+    
+    @Autowired
+    @Qualifier("urlMappingCircuitBreaker")
+    private CircuitBreaker urlMappingCircuitBreaker;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${url.cache.negative-ttl-seconds:60}")
+    private long negativeTtlSeconds;
+    
+    @Value("${spring.datasource.replica.url:}")
+    private String replicaUrl;
+    
+    @Value("${url.cache.refresh-queue-size:1000}")
+    private int refreshQueueSize;
+    
+    // Returned (compared by identity) when Redis could not answer, as opposed to a miss
+    private static final String REDIS_UNAVAILABLE = new String("redis-unavailable");
+    
+    private final SingleFlight<String, Optional<String>> databaseLoads = new SingleFlight<>();
+    private final LongAdder skippedRefreshes = new LongAdder();
+    private final LongAdder replicaMissPrimaryReads = new LongAdder();
+    private ThreadPoolExecutor cacheRefresher;
+    private TransactionTemplate primaryRead;
+    
+    @PostConstruct
+    public void init() {
+        // Not marked read-only, so the lazy data source proxy hands out a primary connection
+        primaryRead = new TransactionTemplate(transactionManager);
+        primaryRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        cacheRefresher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(refreshQueueSize), r -> {
+                Thread thread = new Thread(r, "url-cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        cacheRefresher.shutdownNow();
+    }
     
     /**
      * Create shortened URL
@@ -59,14 +139,20 @@ public class UrlService {
                 throw new IllegalArgumentException("Invalid custom code format");
             }
             
-            if (urlRepository.findByShortCode(customCode).isPresent()) {
+            if (shortCodeAllocator.isGeneratedCodeShape(customCode)) {
+                throw new IllegalArgumentException("Custom codes cannot be exactly "
+                    + UrlShortenerUtil.SEQUENCE_CODE_LENGTH + " characters long");
+            }
+            
+            // Always asked of the database: the filter lags behind codes created on other nodes
+            if (urlRepository.existsByShortCode(customCode)) {
                 throw new IllegalArgumentException("Custom code already exists");
             }
             
             shortCode = customCode;
         } else {
-            // Generate short code with collision handling
-            shortCode = generateUniqueShortCode(originalUrl);
+            // Leased sequence numbers are unique and codes already in use are skipped at lease time
+            shortCode = shortCodeAllocator.nextShortCode();
         }
         
         // Set expiration based on subscription
@@ -84,8 +170,10 @@ public class UrlService {
         
         // Save to database
         url = urlRepository.save(url);
+        shortCodeFilter.add(shortCode);
         
-        // Cache in Redis with TTL
+        // Cache in Redis with TTL; this also replaces any tombstone for the code
+        localUrlCache.invalidate(shortCode);
         cacheUrlMapping(shortCode, originalUrl, expiresAt);
         
         log.info("Created shortened URL: {} -> {} for user: {}", shortCode, originalUrl, user.getEmail());
@@ -93,138 +181,254 @@ public class UrlService {
     }
     
     /**
-     * Resolve short code to original URL with Redis fallback
+     * Resolve short code to original URL: local cache, then Redis, then database
+     * (skipped when Redis missed and the short code filter knows the code does
+     * not exist). While the Redis circuit breaker is open, lookups skip Redis
+     * entirely and, like a Redis error, go to the database without consulting
+     * the filter: it is node-local and lags behind codes created on other nodes.
+     * Codes that do not resolve are cached as tombstones in both cache tiers.
+     * Not transactional: cache hits never touch a JDBC connection, and the
+     * database fallback is a single read-only query (served by the read
+     * replica when configured). Expired URLs are deactivated in the background.
      */
-    @Transactional
     public Optional<String> resolveUrl(String shortCode) {
-        // Try Redis first with 1 second timeout
+        // Hot codes are served from the in-process cache without a network hop
+        String localUrl = localUrlCache.get(shortCode);
+        if (localUrl != null) {
+            if (LocalUrlCache.NOT_FOUND.equals(localUrl)) {
+                return Optional.empty();
+            }
+            clickTrackingService.recordClick(shortCode);
+            return Optional.of(localUrl);
+        }
+        
+        // Try Redis next with 1 second timeout
+        boolean redisMissed = false;
         try {
             // Use a timeout wrapper for Redis operations
-            String originalUrl = getFromRedisWithTimeout(shortCode, 1000);
+            String originalUrl = getFromRedisWithTimeout(shortCode);
+            redisMissed = originalUrl == null;
             
-            if (originalUrl != null) {
+            if (originalUrl != null && originalUrl != REDIS_UNAVAILABLE) {
+                if (LocalUrlCache.NOT_FOUND.equals(originalUrl)) {
+                    return Optional.empty();
+                }
                 // Track click asynchronously
-                trackClickAsync(shortCode);
+                clickTrackingService.recordClick(shortCode);
                 return Optional.of(originalUrl);
             }
         } catch (Exception e) {
             log.warn("Redis lookup failed for {}, falling back to database: {}", shortCode, e.getMessage());
         }
         
-        // Fallback to database
+        // Unknown codes (typos, bots) are rejected without a database query, but only
+        // once Redis has answered: a code just created on another node is in Redis
+        // before this node's filter catches up
+        if (redisMissed && !shortCodeFilter.mightExist(shortCode)) {
+            return Optional.empty();
+        }
+        
+        // Fallback to database; concurrent misses for the same code share one load.
+        // The query borrows a connection only for its own read-only transaction.
+        Optional<String> loaded = databaseLoads.execute(shortCode, () -> loadFromDatabase(shortCode));
+        if (loaded.isPresent()) {
+            // Track click
+            clickTrackingService.recordClick(shortCode);
+        }
+        return loaded;
+    }
+    
+    /**
+     * Load a mapping from the database and re-cache it (or its tombstone)
+     */
+    private Optional<String> loadFromDatabase(String shortCode) {
+        long start = System.currentTimeMillis();
         Optional<Url> urlOpt = urlRepository.findByShortCodeAndIsActive(shortCode, true);
+        if (urlOpt.isEmpty() && !replicaUrl.isEmpty()) {
+            // A just-created link may not have reached the replica yet
+            replicaMissPrimaryReads.increment();
+            urlOpt = primaryRead.execute(status -> urlRepository.findByShortCodeAndIsActive(shortCode, true));
+        }
+        cacheRefreshPolicy.recordLoadTime(System.currentTimeMillis() - start);
         if (urlOpt.isPresent()) {
             Url url = urlOpt.get();
             
             // Check if expired
             if (url.getExpiresAt() != null && url.getExpiresAt().isBefore(LocalDateTime.now())) {
-                url.setIsActive(false);
-                urlRepository.save(url);
+                // No write on the redirect path; the tombstone hides it until the sweeper deactivates it
+                urlExpirySweeper.markExpired(url.getId());
+                cacheNotFound(shortCode, true);
                 return Optional.empty();
             }
             
-            // Re-cache in Redis
+            // Re-cache in Redis and locally
             cacheUrlMapping(shortCode, url.getOriginalUrl(), url.getExpiresAt());
-            
-            // Track click
-            trackClickAsync(shortCode);
+            localUrlCache.put(shortCode, url.getOriginalUrl(), url.getExpiresAt());
             
             return Optional.of(url.getOriginalUrl());
         }
         
+        cacheNotFound(shortCode, false);
         return Optional.empty();
     }
     
     /**
-     * Get URL from Redis with timeout
+     * Reload a mapping that is close to expiring in Redis while the current
+     * entry keeps serving reads; shares the per-code load with redirects
      */
-    private String getFromRedisWithTimeout(String shortCode, long timeoutMs) {
+    private void refreshInBackground(String shortCode) {
         try {
-            // This will use the default timeout configured in Redis template
-            String originalUrl = (String) urlMappingRedisTemplate.opsForValue()
-                .get(REDIS_URL_PREFIX + shortCode);
-            return originalUrl;
-        } catch (Exception e) {
-            log.debug("Redis timeout or error for {}: {}", shortCode, e.getMessage());
-            return null;
+            cacheRefresher.execute(() -> {
+                try {
+                    databaseLoads.execute(shortCode, () -> loadFromDatabase(shortCode));
+                } catch (Exception e) {
+                    log.debug("Early refresh failed for {}: {}", shortCode, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Refresh queue is full; a later read will try again
+            skippedRefreshes.increment();
         }
     }
     
     /**
-     * Generate unique short code with collision handling
+     * Write many mappings to Redis in one pipelined round trip; returns how
+     * many were written (already expired URLs are skipped)
      */
-    private String generateUniqueShortCode(String originalUrl) {
-        String shortCode;
-        int attempt = 0;
+    public int cacheUrlMappings(List<Url> urls) {
+        return urlMappingStore.putAll(urls);
+    }
+    
+    /**
+     * Re-cache every live mapping, e.g. after a Redis failover, one pipelined
+     * batch per database page
+     */
+    public Map<String, Object> recacheActiveMappings(int batchSize) {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        long afterId = 0;
+        long mappings = 0;
+        int batches = 0;
         
+        List<Url> page;
         do {
-            shortCode = attempt == 0 ? 
-                urlShortenerUtil.generateShortCode(originalUrl) : 
-                urlShortenerUtil.generateShortCodeWithSalt(originalUrl, attempt);
-            attempt++;
-        } while (urlRepository.findByShortCode(shortCode).isPresent() && attempt < 10);
+            page = urlRepository.findActiveAfterId(afterId, now, PageRequest.of(0, batchSize));
+            if (!page.isEmpty()) {
+                mappings += cacheUrlMappings(page);
+                afterId = page.get(page.size() - 1).getId();
+                batches++;
+            }
+        } while (page.size() == batchSize);
         
-        if (attempt >= 10) {
-            throw new RuntimeException("Could not generate unique short code after 10 attempts");
-        }
+        long durationMs = Math.max(1, System.currentTimeMillis() - start);
+        log.info("Re-cached {} URL mappings in {} batches ({}ms)", mappings, batches, durationMs);
         
-        return shortCode;
+        Map<String, Object> result = new HashMap<>();
+        result.put("mappings", mappings);
+        result.put("batches", batches);
+        result.put("batch_size", batchSize);
+        result.put("duration_ms", durationMs);
+        result.put("mappings_per_second", mappings * 1000.0 / durationMs);
+        return result;
     }
     
     /**
-     * Cache URL mapping in Redis
+     * Sample of live original URLs, e.g. for measuring cache memory
      */
-    private void cacheUrlMapping(String shortCode, String originalUrl, LocalDateTime expiresAt) {
+    public List<String> sampleOriginalUrls(int count) {
+        List<String> urls = new ArrayList<>();
+        for (Url url : urlRepository.findActiveAfterId(0L, LocalDateTime.now(), PageRequest.of(0, count))) {
+            urls.add(url.getOriginalUrl());
+        }
+        return urls;
+    }
+    
+    /**
+     * Snapshot of database fallback counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getDatabaseLoadStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loads", databaseLoads.getExecutionCount());
+        stats.put("coalesced_waiters", databaseLoads.getCoalescedCount());
+        stats.put("in_flight", databaseLoads.getInFlightCount());
+        stats.put("skipped_refreshes", skippedRefreshes.sum());
+        stats.put("replica_miss_primary_reads", replicaMissPrimaryReads.sum());
+        return stats;
+    }
+    
+    /**
+     * Get URL from Redis with timeout, populating the local cache on a hit.
+     * The mapping comes back with its remaining lifetime so the local entry
+     * never outlives the Redis mapping (and thus the URL).
+     * Returns {@link LocalUrlCache#NOT_FOUND} for a tombstone, null for a
+     * miss, and {@link #REDIS_UNAVAILABLE} when the breaker is open or Redis fails.
+     */
+    private String getFromRedisWithTimeout(String shortCode) {
+        if (!urlMappingCircuitBreaker.allowRequest()) {
+            // Redis is failing; go straight to the database instead of waiting for another error
+            return REDIS_UNAVAILABLE;
+        }
         try {
-            String redisKey = REDIS_URL_PREFIX + shortCode;
+            // Bounded by the pool max wait and the URL-mapping read timeout (RedisConfig)
+            UrlMappingStore.CachedMapping mapping = urlMappingStore.get(shortCode);
+            urlMappingCircuitBreaker.recordSuccess();
+            if (mapping == null) {
+                return null;
+            }
             
-            if (expiresAt != null) {
-                long ttl = java.time.Duration.between(LocalDateTime.now(), expiresAt).getSeconds();
-                if (ttl > 0) {
-                    urlMappingRedisTemplate.opsForValue().set(redisKey, originalUrl);
-                    urlMappingRedisTemplate.expire(redisKey, ttl, TimeUnit.SECONDS);
-                }
+            long remaining = mapping.getRemainingMillis();
+            if (mapping.isNotFound()) {
+                localUrlCache.putNotFound(shortCode, remaining);
             } else {
-                urlMappingRedisTemplate.opsForValue().set(redisKey, originalUrl);
+                // Read rate seen by the entry being replaced
+                long redisReadGap = localUrlCache.getRedisReadGapMillis(shortCode);
+                localUrlCache.put(shortCode, mapping.getOriginalUrl(), remaining);
+                if (cacheRefreshPolicy.shouldRefresh(remaining, redisReadGap)) {
+                    refreshInBackground(shortCode);
+                }
             }
+            return mapping.getOriginalUrl();
         } catch (Exception e) {
-            log.warn("Failed to cache URL mapping for {}: {}", shortCode, e.getMessage());
+            urlMappingCircuitBreaker.recordFailure();
+            redisPoolMonitor.recordFailure(e);
+            log.debug("Redis timeout or error for {}: {}", shortCode, e.getMessage());
+            return REDIS_UNAVAILABLE;
+        }
+    }
+    
+    /**
+     * Cache a short-lived tombstone for a code that does not resolve. Unless
+     * the URL is known to be dead, an existing Redis mapping is left alone so
+     * a lookup racing with the code's creation cannot hide the new mapping.
+     */
+    private void cacheNotFound(String shortCode, boolean overwrite) {
+        localUrlCache.putNotFound(shortCode, -1L);
+        if (!urlMappingCircuitBreaker.allowRequest()) {
+            return;
+        }
+        try {
+            urlMappingStore.putNotFound(shortCode, negativeTtlSeconds, overwrite);
+            urlMappingCircuitBreaker.recordSuccess();
+        } catch (Exception e) {
+            urlMappingCircuitBreaker.recordFailure();
+            log.warn("Failed to cache missing URL mapping for {}: {}", shortCode, e.getMessage());
         }
     }
     
     /**
-     * Track click asynchronously
+     * Cache URL mapping in Redis with a bounded, jittered TTL
      */
-    private void trackClickAsync(String shortCode) {
-        // This would be better implemented with @Async
+    private void cacheUrlMapping(String shortCode, String originalUrl, LocalDateTime expiresAt) {
+        if (!urlMappingCircuitBreaker.allowRequest()) {
+            // Skipped while Redis is failing; the next miss after recovery re-caches it
+            return;
+        }
         try {
-            Optional<Url> urlOpt = urlRepository.findByShortCode(shortCode);
-            if (urlOpt.isPresent()) {
-                Url url = urlOpt.get();
-                
-                // Increment total click count
-                url.setClickCount(url.getClickCount() + 1);
-                urlRepository.save(url);
-                
-                // Update daily analytics
-                LocalDate today = LocalDate.now();
-                Optional<UrlAnalytics> analyticsOpt = urlAnalyticsRepository.findByUrlIdAndClickDate(url.getId(), today);
-                
-                if (analyticsOpt.isPresent()) {
-                    UrlAnalytics analytics = analyticsOpt.get();
-                    analytics.setClickCount(analytics.getClickCount() + 1);
-                    urlAnalyticsRepository.save(analytics);
-                } else {
-                    UrlAnalytics analytics = UrlAnalytics.builder()
-                        .urlId(url.getId())
-                        .clickDate(today)
-                        .clickCount(1)
-                        .build();
-                    urlAnalyticsRepository.save(analytics);
-                }
-            }
+            urlMappingStore.put(shortCode, originalUrl, expiresAt);
+            urlMappingCircuitBreaker.recordSuccess();
         } catch (Exception e) {
-            log.error("Failed to track click for {}: {}", shortCode, e.getMessage());
+            urlMappingCircuitBreaker.recordFailure();
+            log.warn("Failed to cache URL mapping for {}: {}", shortCode, e.getMessage());
         }
     }
     
@@ -300,6 +504,27 @@ public class UrlService {
         return urlRepository.findByIdAndUserId(urlId, userId);
     }
     
+    /**
+     * Get click count including clicks not yet flushed to the database
+     */
+    public long getLiveClickCount(Url url) {
+        return url.getClickCount() + clickTrackingService.getPendingClicks(url.getShortCode());
+    }
+    
+    /**
+     * Get clicks recorded for a short code that are not yet persisted
+     */
+    public long getPendingClicks(String shortCode) {
+        return clickTrackingService.getPendingClicks(shortCode);
+    }
+    
+    /**
+     * Get clicks recorded for a short code on one day that are not yet persisted
+     */
+    public long getPendingClicks(String shortCode, LocalDate day) {
+        return clickTrackingService.getPendingClicks(shortCode, day);
+    }
+    
     /**
      * Get user dashboard statistics
      */
@@ -309,7 +534,7 @@ public class UrlService {
         // Get total clicks across all user URLs
         List<Url> userUrls = urlRepository.findByUserIdAndIsActiveOrderByCreatedAtDesc(userId, true);
         long totalClicks = userUrls.stream()
-            .mapToLong(Url::getClickCount)
+            .mapToLong(this::getLiveClickCount)
             .sum();
         
         // Calculate average CTR (Click Through Rate)
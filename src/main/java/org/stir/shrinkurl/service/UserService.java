@@ -36,6 +36,9 @@ public class UserService {
     @Autowired
     private SubscriptionService subscriptionService;
     
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+    
     // OAuth2 login
     public User processOAuth2User(GoogleUserInfo googleUserInfo) {
         Optional<User> existingUser = userRepository.findByEmail(googleUserInfo.getEmail());
@@ -58,6 +61,7 @@ public class UserService {
             user.setEmailVerified(googleUserInfo.isVerifiedEmail());
         }
         
+        userSnapshotCache.invalidate(user.getId());
         return userRepository.save(user);
     }
     
@@ -98,6 +102,7 @@ public class UserService {
         }
         
         user.setLastLoginAt(LocalDateTime.now());
+        userSnapshotCache.invalidate(user.getId());
         return userRepository.save(user);
     }
     
@@ -144,6 +149,7 @@ public class UserService {
             user.setPicture(request.getPicture());
         }
         
+        userSnapshotCache.invalidate(userId);
         return userRepository.save(user);
     } 
 }
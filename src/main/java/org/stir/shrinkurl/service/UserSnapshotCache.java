@@ -0,0 +1,203 @@
+package org.stir.shrinkurl.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.stir.shrinkurl.cache.StripedLruMap;
+import org.stir.shrinkurl.entity.Subscription;
+import org.stir.shrinkurl.entity.User;
+import org.stir.shrinkurl.repository.UserRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded, node-local cache of user snapshots for controllers that take an
+ * {@code @AuthenticationPrincipal User}.
+ *
+ * A snapshot holds the user's columns, roles and subscription (never the
+ * password hash). Every caller gets its own detached copy, so changes to it do
+ * not leak into the cache; services load the managed entity for writes.
+ * {@link UserService} and {@link SubscriptionService} invalidate a user's
+ * snapshot whenever they change the profile or subscription. Other nodes only
+ * notice after the TTL, which bounds how stale a snapshot can be.
+ * A max size of 0 disables caching: every request that asks for the user
+ * loads it, and requests that do not ask never touch the database.
+ */
+@Service
+@Slf4j
+public class UserSnapshotCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${auth.user-snapshot.max-size:10000}")
+    private int maxSize;
+
+    @Value("${auth.user-snapshot.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private StripedLruMap<Long, Snapshot> snapshots;
+    private TransactionTemplate loadTransaction;
+
+    // Bumped on every invalidation so a load racing with a change is not cached
+    private final AtomicLong invalidationSequence = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (maxSize > 0) {
+            snapshots = new StripedLruMap<>(maxSize, 16);
+        }
+        // Not read-only: a reload right after a change must not come from a lagging replica
+        loadTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Detached copy of the user with its subscription, or empty if the user no longer exists
+     */
+    public Optional<User> getUser(Long userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+
+        if (snapshots != null) {
+            Snapshot snapshot = snapshots.get(userId);
+            if (snapshot != null && snapshot.expiresAtMillis > System.currentTimeMillis()) {
+                hits.increment();
+                return Optional.of(snapshot.toUser());
+            }
+        }
+
+        misses.increment();
+        long sequence = invalidationSequence.get();
+        Snapshot loaded = loadTransaction.execute(status ->
+            userRepository.findById(userId).map(user -> new Snapshot(user, ttlSeconds)).orElse(null));
+        if (loaded == null) {
+            return Optional.empty();
+        }
+        if (snapshots != null && sequence == invalidationSequence.get()) {
+            snapshots.put(userId, loaded);
+        }
+        return Optional.of(loaded.toUser());
+    }
+
+    /**
+     * Drop a user's snapshot now and again once the surrounding transaction
+     * commits, so no request can re-cache the old state in between
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Snapshot of cache counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", snapshots != null);
+        stats.put("size", snapshots != null ? snapshots.size() : 0);
+        stats.put("max_size", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("evictions", snapshots != null ? snapshots.getEvictionCount() : 0L);
+        return stats;
+    }
+
+    private void remove(Long userId) {
+        invalidationSequence.incrementAndGet();
+        invalidations.increment();
+        if (snapshots != null) {
+            snapshots.remove(userId);
+        }
+    }
+
+    /**
+     * Immutable copy of a user and its subscription, taken inside the load transaction
+     */
+    private static final class Snapshot {
+        private final User user;
+        private final Subscription subscription;
+        private final long expiresAtMillis;
+
+        Snapshot(User source, long ttlSeconds) {
+            this.user = copyUser(source);
+            this.subscription = source.getSubscription() != null ? copySubscription(source.getSubscription(), null) : null;
+            this.expiresAtMillis = System.currentTimeMillis() + ttlSeconds * 1000;
+        }
+
+        User toUser() {
+            User copy = copyUser(user);
+            if (subscription != null) {
+                copy.setSubscription(copySubscription(subscription, copy));
+            }
+            return copy;
+        }
+
+        private static User copyUser(User source) {
+            return User.builder()
+                .id(source.getId())
+                .email(source.getEmail())
+                .name(source.getName())
+                .picture(source.getPicture())
+                .roles(source.getRoles() != null ? new ArrayList<>(source.getRoles()) : new ArrayList<>())
+                .provider(source.getProvider())
+                .providerId(source.getProviderId())
+                .emailVerified(source.isEmailVerified())
+                .active(source.isActive())
+                .createdAt(source.getCreatedAt())
+                .updatedAt(source.getUpdatedAt())
+                .lastLoginAt(source.getLastLoginAt())
+                .build();
+        }
+
+        // Every column is copied so a merge of the copy (e.g. cancelling) writes back the same row
+        private static Subscription copySubscription(Subscription source, User owner) {
+            return Subscription.builder()
+                .id(source.getId())
+                .user(owner)
+                .plan(source.getPlan())
+                .status(source.getStatus())
+                .startDate(source.getStartDate())
+                .endDate(source.getEndDate())
+                .trialEndDate(source.getTrialEndDate())
+                .amount(source.getAmount())
+                .currency(source.getCurrency())
+                .autoRenew(source.isAutoRenew())
+                .cancelledAt(source.getCancelledAt())
+                .cancellationReason(source.getCancellationReason())
+                .createdAt(source.getCreatedAt())
+                .updatedAt(source.getUpdatedAt())
+                .build();
+        }
+    }
+}
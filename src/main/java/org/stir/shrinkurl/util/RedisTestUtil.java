@@ -4,10 +4,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
+import org.stir.shrinkurl.cache.UrlMappingStore;
 import org.stir.shrinkurl.service.RateLimitService;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -28,6 +30,11 @@ public class RedisTestUtil {
     @Autowired
     private RateLimitService rateLimitService;
     
+    @Autowired
+    private UrlMappingStore urlMappingStore;
+    
+    private static final int MAX_LISTED_MAPPINGS = 1000;
+    
     /**
      * Test Redis connection and basic operations
      */
@@ -74,26 +81,25 @@ public class RedisTestUtil {
         try {
             // Create a shortened URL
             String shortCode = "test" + System.currentTimeMillis();
-            String redisKey = "url:" + shortCode;
             
-            // Store in Redis
-            urlMappingRedisTemplate.opsForValue().set(redisKey, testUrl, 300, TimeUnit.SECONDS);
+            // Store in Redis through the same store the redirect path uses
+            urlMappingStore.put(shortCode, testUrl, LocalDateTime.now().plusMinutes(5));
             
             // Retrieve from Redis
-            String retrievedUrl = (String) urlMappingRedisTemplate.opsForValue().get(redisKey);
+            UrlMappingStore.CachedMapping mapping = urlMappingStore.get(shortCode);
+            String retrievedUrl = mapping != null ? mapping.getOriginalUrl() : null;
             
             result.put("test_url", testUrl);
             result.put("short_code", shortCode);
-            result.put("redis_key", redisKey);
+            result.put("storage", urlMappingStore.describe(shortCode));
             result.put("retrieved_url", retrievedUrl);
             result.put("mapping_works", testUrl.equals(retrievedUrl));
             
             // Check TTL
-            Long ttl = urlMappingRedisTemplate.getExpire(redisKey);
-            result.put("ttl_seconds", ttl);
+            result.put("ttl_seconds", mapping != null ? mapping.getRemainingMillis() / 1000 : null);
             
             // Clean up
-            urlMappingRedisTemplate.delete(redisKey);
+            urlMappingStore.delete(shortCode);
             
         } catch (Exception e) {
             log.error("URL mapping test failed", e);
@@ -157,23 +163,13 @@ public class RedisTestUtil {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            Set<String> keys = urlMappingRedisTemplate.keys("url:*");
-            result.put("total_mappings", keys != null ? keys.size() : 0);
-            
-            if (keys != null) {
-                Map<String, Object> mappings = new HashMap<>();
-                for (String key : keys) {
-                    String originalUrl = (String) urlMappingRedisTemplate.opsForValue().get(key);
-                    Long ttl = urlMappingRedisTemplate.getExpire(key);
-                    
-                    Map<String, Object> mapping = new HashMap<>();
-                    mapping.put("original_url", originalUrl);
-                    mapping.put("ttl_seconds", ttl);
-                    
-                    mappings.put(key, mapping);
-                }
-                result.put("mappings", mappings);
+            result.put("total_mappings", urlMappingStore.countMappings());
+            
+            Map<String, Object> mappings = new HashMap<>();
+            for (String shortCode : urlMappingStore.listCodes(MAX_LISTED_MAPPINGS)) {
+                mappings.put(shortCode, urlMappingStore.describe(shortCode));
             }
+            result.put("mappings", mappings);
             
         } catch (Exception e) {
             log.error("Failed to get URL mappings", e);
@@ -1,18 +1,25 @@
 package org.stir.shrinkurl.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.stir.shrinkurl.cache.StripedLruMap;
 import org.stir.shrinkurl.dto.TokenPair;
 import org.stir.shrinkurl.entity.RefreshToken;
 import org.stir.shrinkurl.entity.User;
-import org.stir.shrinkurl.repository.RefreshTokenRepository;
+import org.stir.shrinkurl.repository.RefreshTokenStore;
 import org.stir.shrinkurl.service.RefreshTokenService;
 
 import com.auth0.jwt.JWT;
@@ -26,6 +33,16 @@ import com.auth0.jwt.interfaces.DecodedJWT;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Issues and validates access tokens.
+ *
+ * Browsers send the same access token with every request until it expires,
+ * so verified tokens are kept in a bounded cache keyed by the token's SHA-256
+ * digest: a repeat token costs one digest instead of Base64 decoding, JSON
+ * parsing and an HMAC. Entries expire at the token's {@code exp}. Only tokens
+ * that passed verification are cached, and the digest of a different token
+ * never matches, so a forged token is always verified in full.
+ */
 @Component
 @Slf4j
 public class JwtUtil {
@@ -39,19 +56,38 @@ public class JwtUtil {
     @Value("${jwt.refresh-token-validity:3600}")
     private long refreshTokenValidity;
 
+    // 0 disables the verified-token cache
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
     @Autowired
-    private RefreshTokenRepository refreshTokenRepository;
+    private RefreshTokenStore refreshTokenStore;
 
     @Autowired
     private RefreshTokenService refreshTokenService;
 
     private Algorithm algorithm;
     private JWTVerifier verifier;
+    private StripedLruMap<ByteBuffer, VerifiedToken> verifiedTokens;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
 
     @PostConstruct
     public void init(){
         algorithm = Algorithm.HMAC256(jwtSecret);
         verifier = JWT.require(algorithm).build();
+        if (verifiedCacheMaxSize > 0) {
+            verifiedTokens = new StripedLruMap<>(verifiedCacheMaxSize, 16);
+        }
     }
 
     public TokenPair generateTokens(User user) {
@@ -64,7 +100,7 @@ public class JwtUtil {
         
         String accessToken = generateAccessToken(user.getEmail(), claims);
         
-        // Create refresh token in MongoDB
+        // Create refresh token in the configured store
         RefreshToken refreshTokenEntity = refreshTokenService.createRefreshToken(user);
         
         return new TokenPair(accessToken, refreshTokenEntity.getToken());
@@ -111,7 +147,29 @@ public class JwtUtil {
                 return Optional.empty();
             }
             
+            if (verifiedTokens == null) {
+                return Optional.of(verifier.verify(token));
+            }
+            
+            ByteBuffer key = digest(token);
+            VerifiedToken cached = verifiedTokens.get(key);
+            if (cached != null) {
+                if (cached.expiresAtMillis > System.currentTimeMillis()) {
+                    cacheHits.increment();
+                    return Optional.of(cached.decoded);
+                }
+                verifiedTokens.remove(key);
+                log.debug("Token expired: cached token passed its exp");
+                return Optional.empty();
+            }
+            
+            cacheMisses.increment();
             DecodedJWT decodedJWT = verifier.verify(token);
+            Date expiresAt = decodedJWT.getExpiresAt();
+            // Tokens without exp are not cached; every token this class issues has one
+            if (expiresAt != null) {
+                verifiedTokens.put(key, new VerifiedToken(decodedJWT, expiresAt.getTime()));
+            }
                 
             return Optional.of(decodedJWT);
         } catch (TokenExpiredException e) {
@@ -123,6 +181,45 @@ public class JwtUtil {
         }
     }
     
+    /**
+     * Snapshot of verified-token cache counters for the debug metrics endpoint
+     */
+    public Map<String, Object> getVerifiedCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", verifiedTokens != null);
+        stats.put("size", verifiedTokens != null ? verifiedTokens.size() : 0);
+        stats.put("max_size", verifiedCacheMaxSize);
+        stats.put("hits", cacheHits.sum());
+        stats.put("misses", cacheMisses.sum());
+        stats.put("evictions", verifiedTokens != null ? verifiedTokens.getEvictionCount() : 0L);
+        return stats;
+    }
+    
+    private static ByteBuffer digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Hex SHA-256 of a token, for keying stored data by a token without storing the token
+     */
+    public static String digestHex(String token) {
+        return HexFormat.of().formatHex(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    /**
+     * Verified, decoded token and the time its exp claim is reached
+     */
+    private static final class VerifiedToken {
+        private final DecodedJWT decoded;
+        private final long expiresAtMillis;
+        
+        VerifiedToken(DecodedJWT decoded, long expiresAtMillis) {
+            this.decoded = decoded;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+    
     public User getUserFromToken(String token) {
         return validateToken(token)
             .map(jwt -> User.builder()
@@ -135,7 +232,7 @@ public class JwtUtil {
     }
 
     public Optional<RefreshToken> validateRefreshToken(String token) {
-        return refreshTokenRepository.findByToken(token)
+        return refreshTokenStore.findByToken(token)
             .filter(rt -> rt.getExpiryDate().after(new Date()));
     }
 }
@@ -0,0 +1,62 @@
+package org.stir.shrinkurl.utils;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.stir.shrinkurl.annotation.RateLimit;
+import org.stir.shrinkurl.dto.AuthenticatedUser;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Builds rate limit keys so the global filter and the @RateLimit aspect
+ * agree on which client a request belongs to.
+ *
+ * The client part of a key is wrapped in a Redis Cluster hash tag, so an
+ * IP's global windows and its per-endpoint counter share a slot and can be
+ * updated by one script.
+ */
+@Component
+public class RateLimitKeyUtil {
+
+    public String buildRateLimitKey(HttpServletRequest request, RateLimit rateLimit) {
+        if (!rateLimit.key().isEmpty()) {
+            // Use custom key if provided
+            return rateLimit.key();
+        }
+
+        if (rateLimit.perUser()) {
+            // Use user ID if authenticated
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.getPrincipal() instanceof AuthenticatedUser) {
+                AuthenticatedUser user = (AuthenticatedUser) auth.getPrincipal();
+                return "user:" + hashTag(String.valueOf(user.getId()));
+            }
+        }
+
+        // Fallback to IP address
+        String clientIp = getClientIpAddress(request);
+        return "ip:" + hashTag(clientIp);
+    }
+
+    /**
+     * Only the part between the braces decides a key's cluster slot
+     */
+    public static String hashTag(String client) {
+        return "{" + client + "}";
+    }
+
+    public String getClientIpAddress(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            return xForwardedFor.split(",")[0].trim();
+        }
+
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty()) {
+            return xRealIp;
+        }
+
+        return request.getRemoteAddr();
+    }
+}
@@ -10,6 +10,17 @@ public class UrlShortenerUtil {
     private static final int BASE = 62;
     private static final int MIN_LENGTH = 6;
     
+    /** Length of codes generated from the short-code sequence */
+    public static final int SEQUENCE_CODE_LENGTH = 7;
+    
+    /** Number of distinct sequence codes: 62^7 */
+    public static final long SEQUENCE_SPACE = 3_521_614_606_208L;
+    
+    // The scrambler permutes 42-bit values (2^42 > 62^7) and cycle-walks back into the code space
+    private static final int HALF_BITS = 21;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int SCRAMBLE_ROUNDS = 4;
+    
     /**
      * Generate short code using CRC32 hash and Base62 encoding
      */
@@ -39,6 +50,71 @@ public class UrlShortenerUtil {
         return generateShortCode(saltedUrl);
     }
     
+    /**
+     * Encode a sequence number as a fixed-length Base62 code
+     */
+    public String encodeSequence(long sequence) {
+        if (sequence < 0 || sequence >= SEQUENCE_SPACE) {
+            throw new IllegalArgumentException("Sequence out of short code range: " + sequence);
+        }
+        
+        char[] code = new char[SEQUENCE_CODE_LENGTH];
+        for (int i = SEQUENCE_CODE_LENGTH - 1; i >= 0; i--) {
+            code[i] = BASE62_CHARS.charAt((int) (sequence % BASE));
+            sequence /= BASE;
+        }
+        return new String(code);
+    }
+    
+    /**
+     * Bijectively map a sequence number onto another one in the same code space,
+     * so consecutive sequence numbers do not produce consecutive (guessable) codes
+     */
+    public long scramble(long sequence, long key) {
+        long value = sequence;
+        do {
+            value = feistel(value, key, false);
+        } while (value >= SEQUENCE_SPACE);
+        return value;
+    }
+    
+    /**
+     * Inverse of {@link #scramble(long, long)}
+     */
+    public long unscramble(long scrambled, long key) {
+        long value = scrambled;
+        do {
+            value = feistel(value, key, true);
+        } while (value >= SEQUENCE_SPACE);
+        return value;
+    }
+    
+    private long feistel(long value, long key, boolean inverse) {
+        long left = (value >>> HALF_BITS) & HALF_MASK;
+        long right = value & HALF_MASK;
+        for (int i = 0; i < SCRAMBLE_ROUNDS; i++) {
+            int round = inverse ? SCRAMBLE_ROUNDS - 1 - i : i;
+            if (inverse) {
+                long previousRight = left;
+                left = right ^ roundFunction(previousRight, key, round);
+                right = previousRight;
+            } else {
+                long next = left ^ roundFunction(right, key, round);
+                left = right;
+                right = next;
+            }
+        }
+        return (left << HALF_BITS) | right;
+    }
+    
+    private long roundFunction(long half, long key, int round) {
+        long x = (half ^ key ^ ((long) round << 32)) * 0x9E3779B97F4A7C15L;
+        x ^= x >>> 29;
+        x *= 0xBF58476D1CE4E5B9L;
+        x ^= x >>> 32;
+        return x & HALF_MASK;
+    }
+    
     /**
      * Encode number to Base62
      */
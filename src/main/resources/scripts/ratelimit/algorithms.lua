@@ -0,0 +1,148 @@
+-- Shared rate limiting algorithms. Every entry script in this directory is
+-- loaded with this file prepended, so each check stays one EVALSHA.
+-- Each algorithm returns {allowed (1/0), count, seconds until reset}.
+redis.replicate_commands()
+
+local function now_ms()
+    local time = redis.call('TIME')
+    return tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+end
+
+-- Fixed-window counter; rejected requests are not counted
+local function fixed_window(key, limit, window)
+    local count = tonumber(redis.call('GET', key) or '0')
+    local allowed = 0
+    if count < limit then
+        count = redis.call('INCR', key)
+        allowed = 1
+    end
+
+    local ttl = redis.call('TTL', key)
+    if ttl < 0 then
+        -- First hit of the window, or a counter that lost its TTL
+        redis.call('EXPIRE', key, window)
+        ttl = window
+    end
+    return {allowed, count, ttl}
+end
+
+-- Sliding log: one sorted-set member per admitted request
+local function sliding_log(key, limit, window, nonce)
+    local window_ms = window * 1000
+    local now = now_ms()
+
+    redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window_ms)
+    local count = redis.call('ZCARD', key)
+
+    local allowed = 0
+    if count < limit then
+        redis.call('ZADD', key, now, now .. '-' .. nonce)
+        redis.call('PEXPIRE', key, window_ms)
+        count = count + 1
+        allowed = 1
+    end
+
+    local reset_ms = window_ms
+    local oldest = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+    if oldest[2] then
+        reset_ms = tonumber(oldest[2]) + window_ms - now
+    end
+    return {allowed, count, math.ceil(reset_ms / 1000)}
+end
+
+-- Sliding-window counter: the previous fixed window is weighted by how much
+-- of it still overlaps the sliding window; both live in one hash
+local function sliding_counter(key, limit, window)
+    local window_ms = window * 1000
+    local now = now_ms()
+
+    local current = math.floor(now / window_ms)
+    local previous_count = tonumber(redis.call('HGET', key, current - 1) or '0')
+    local current_count = tonumber(redis.call('HGET', key, current) or '0')
+
+    local elapsed = (now - current * window_ms) / window_ms
+    local estimated = math.floor(previous_count * (1 - elapsed) + current_count)
+    local reset = math.ceil(((current + 1) * window_ms - now) / 1000)
+
+    if estimated >= limit then
+        return {0, estimated, reset}
+    end
+
+    redis.call('HINCRBY', key, current, 1)
+    redis.call('HDEL', key, current - 2)
+    redis.call('PEXPIRE', key, window_ms * 2)
+    return {1, estimated + 1, reset}
+end
+
+-- Token bucket: capacity = limit, refilled continuously at limit per window
+local function token_bucket(key, limit, window)
+    local window_ms = window * 1000
+    local now = now_ms()
+
+    local bucket = redis.call('HMGET', key, 'tokens', 'ts')
+    local tokens = tonumber(bucket[1])
+    local ts = tonumber(bucket[2])
+    if tokens == nil or ts == nil then
+        tokens = limit
+        ts = now
+    end
+
+    tokens = math.min(limit, tokens + math.max(0, now - ts) * limit / window_ms)
+
+    local allowed = 0
+    if tokens >= 1 then
+        tokens = tokens - 1
+        allowed = 1
+    end
+
+    redis.call('HMSET', key, 'tokens', tokens, 'ts', now)
+    redis.call('PEXPIRE', key, window_ms)
+
+    local used = limit - math.floor(tokens)
+    local reset = math.ceil((limit - tokens) * window_ms / limit / 1000)
+    return {allowed, used, reset}
+end
+
+local ALGORITHMS = {
+    FIXED_WINDOW = fixed_window,
+    SLIDING_LOG = sliding_log,
+    SLIDING_COUNTER = sliding_counter,
+    TOKEN_BUCKET = token_bucket
+}
+
+-- Several fixed windows updated together. `admitted` requests already let
+-- through by the caller are always recorded; with `check`, one more request
+-- is admitted only if it fits every window.
+-- limits/windows are parallel arrays. Returns allowed and {count, ttl} per key.
+local function multi_window(keys, limits, windows, admitted, check)
+    local counts = {}
+    local allowed = 1
+    for i = 1, #keys do
+        counts[i] = tonumber(redis.call('GET', keys[i]) or '0')
+        if check and counts[i] + admitted + 1 > limits[i] then
+            allowed = 0
+        end
+    end
+
+    local delta = admitted
+    if check and allowed == 1 then
+        delta = delta + 1
+    end
+
+    local windows_result = {}
+    for i = 1, #keys do
+        if delta > 0 then
+            counts[i] = redis.call('INCRBY', keys[i], delta)
+        end
+        local ttl = redis.call('TTL', keys[i])
+        if ttl == -1 then
+            redis.call('EXPIRE', keys[i], windows[i])
+            ttl = windows[i]
+        elseif ttl == -2 then
+            ttl = windows[i]
+        end
+        table.insert(windows_result, counts[i])
+        table.insert(windows_result, ttl)
+    end
+    return allowed, windows_result
+end
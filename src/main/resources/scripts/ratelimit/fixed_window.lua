@@ -0,0 +1,3 @@
+-- KEYS[1] = counter key
+-- ARGV[1] = limit, ARGV[2] = window in seconds
+return fixed_window(KEYS[1], tonumber(ARGV[1]), tonumber(ARGV[2]))
@@ -0,0 +1,18 @@
+-- KEYS[i] = counter key for window i
+-- ARGV[1] = requests already admitted by the caller (always recorded)
+-- ARGV[2] = 1 to also admit one more request if it fits every window, 0 otherwise
+-- ARGV[1 + 2i] = limit for window i, ARGV[2 + 2i] = window length in seconds
+-- Returns {allowed (1/0), count_1, ttl_1, count_2, ttl_2, ...}.
+local limits = {}
+local windows = {}
+for i = 1, #KEYS do
+    limits[i] = tonumber(ARGV[1 + 2 * i])
+    windows[i] = tonumber(ARGV[2 + 2 * i])
+end
+
+local allowed, counts = multi_window(KEYS, limits, windows, tonumber(ARGV[1]), tonumber(ARGV[2]) == 1)
+local result = {allowed}
+for _, value in ipairs(counts) do
+    table.insert(result, value)
+end
+return result
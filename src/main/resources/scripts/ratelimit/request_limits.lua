@@ -0,0 +1,32 @@
+-- Every limit that applies to one HTTP request, evaluated in one round trip:
+-- the global per-client windows first, then the endpoint's @RateLimit.
+-- The endpoint is only counted when the global windows admit the request.
+-- KEYS[1..n] = global window keys, KEYS[n + 1] = endpoint key
+-- ARGV[1] = requests already admitted locally for the global windows
+-- ARGV[2] = 1 to check this request against the global windows, 0 to just record it
+-- ARGV[3] = endpoint algorithm, ARGV[4] = endpoint limit, ARGV[5] = endpoint window,
+-- ARGV[6] = unique request id (sliding log only)
+-- ARGV[5 + 2i] = limit for global window i, ARGV[6 + 2i] = its length in seconds
+-- Returns {global allowed, endpoint allowed, endpoint count, endpoint reset,
+--          count_1, ttl_1, ..., count_n, ttl_n}.
+local global_keys = {}
+local limits = {}
+local windows = {}
+for i = 1, #KEYS - 1 do
+    global_keys[i] = KEYS[i]
+    limits[i] = tonumber(ARGV[5 + 2 * i])
+    windows[i] = tonumber(ARGV[6 + 2 * i])
+end
+
+local global_allowed, counts = multi_window(global_keys, limits, windows, tonumber(ARGV[1]), tonumber(ARGV[2]) == 1)
+
+local endpoint = {0, 0, 0}
+if global_allowed == 1 then
+    endpoint = ALGORITHMS[ARGV[3]](KEYS[#KEYS], tonumber(ARGV[4]), tonumber(ARGV[5]), ARGV[6])
+end
+
+local result = {global_allowed, endpoint[1], endpoint[2], endpoint[3]}
+for _, value in ipairs(counts) do
+    table.insert(result, value)
+end
+return result
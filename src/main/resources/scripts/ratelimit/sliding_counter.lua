@@ -0,0 +1,3 @@
+-- KEYS[1] = window hash key
+-- ARGV[1] = limit, ARGV[2] = window in seconds
+return sliding_counter(KEYS[1], tonumber(ARGV[1]), tonumber(ARGV[2]))
@@ -0,0 +1,3 @@
+-- KEYS[1] = log key
+-- ARGV[1] = limit, ARGV[2] = window in seconds, ARGV[3] = unique request id
+return sliding_log(KEYS[1], tonumber(ARGV[1]), tonumber(ARGV[2]), ARGV[3])
@@ -0,0 +1,3 @@
+-- KEYS[1] = bucket hash key (tokens, ts)
+-- ARGV[1] = limit, ARGV[2] = window in seconds
+return token_bucket(KEYS[1], tonumber(ARGV[1]), tonumber(ARGV[2]))
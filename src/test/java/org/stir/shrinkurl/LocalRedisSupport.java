@@ -0,0 +1,70 @@
+package org.stir.shrinkurl;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Connection to a local Redis (redis.test.host / redis.test.port, DB 15)
+ * for tests that need a real server. Tests using it are skipped when no
+ * server is reachable, so they do not run in a build without Redis.
+ */
+public final class LocalRedisSupport implements AutoCloseable {
+
+    private final JedisConnectionFactory connectionFactory;
+    private final RedisTemplate<String, Object> template;
+
+    private LocalRedisSupport(JedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+
+        // Same serializers as RedisConfig
+        template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new StringRedisSerializer());
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.setHashValueSerializer(new StringRedisSerializer());
+        template.setDefaultSerializer(new StringRedisSerializer());
+        template.afterPropertiesSet();
+    }
+
+    /**
+     * Connect to the local test Redis, or skip the calling test if it is not reachable
+     */
+    public static LocalRedisSupport connectOrSkip() {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+            System.getProperty("redis.test.host", "localhost"),
+            Integer.getInteger("redis.test.port", 6379));
+        config.setDatabase(15);
+
+        JedisConnectionFactory connectionFactory = new JedisConnectionFactory(config);
+        connectionFactory.afterPropertiesSet();
+
+        boolean redisAvailable;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+            redisAvailable = true;
+        } catch (Exception e) {
+            redisAvailable = false;
+        }
+        if (!redisAvailable) {
+            connectionFactory.destroy();
+        }
+        assumeTrue(redisAvailable, "Redis is not available");
+
+        return new LocalRedisSupport(connectionFactory);
+    }
+
+    public RedisTemplate<String, Object> getTemplate() {
+        return template;
+    }
+
+    @Override
+    public void close() {
+        connectionFactory.destroy();
+    }
+}
@@ -0,0 +1,89 @@
+package org.stir.shrinkurl.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheRefreshPolicyTest {
+
+    private static final long REDIS_TTL_MILLIS = 3_600_000;
+    private static final long LOCAL_TTL_MILLIS = 60_000;
+    private static final int TRIALS = 1000;
+
+    private CacheRefreshPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        policy = new CacheRefreshPolicy();
+        ReflectionTestUtils.setField(policy, "ttlSeconds", REDIS_TTL_MILLIS / 1000);
+        ReflectionTestUtils.setField(policy, "ttlJitter", 0.1);
+        ReflectionTestUtils.setField(policy, "beta", 1.0);
+        ReflectionTestUtils.setField(policy, "minDeltaMillis", 200L);
+    }
+
+    @Test
+    void testShouldRefresh_HotCodeRefreshedBeforeTtlEnds() {
+        // A hot code is read from Redis once per local TTL, at a random phase
+        long readGap = LOCAL_TTL_MILLIS + 10;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            assertTrue(refreshedBeforeExpiry(readGap), "hot code expired from Redis in trial " + trial);
+        }
+    }
+
+    @Test
+    void testShouldRefresh_UnknownReadRateLetsMappingLapse() {
+        // Without a read rate only the load time counts, so a read once a minute rarely refreshes
+        int refreshed = 0;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            if (refreshedBeforeExpiry(-1)) {
+                refreshed++;
+            }
+        }
+        assertTrue(refreshed < TRIALS / 10, "refreshed " + refreshed + " of " + TRIALS);
+    }
+
+    @Test
+    void testShouldRefresh_HotCodeNotRefreshedEarlyInItsTtl() {
+        assertFalse(policy.shouldRefresh(REDIS_TTL_MILLIS / 2, LOCAL_TTL_MILLIS + 10));
+    }
+
+    @Test
+    void testGetRedisReadGapMillis_FromLocalReadRate() {
+        LocalUrlCache cache = new LocalUrlCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", LOCAL_TTL_MILLIS / 1000);
+        ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 10L);
+        cache.init();
+
+        cache.put("hot", "https://example.com/hot", REDIS_TTL_MILLIS);
+        cache.put("cold", "https://example.com/cold", REDIS_TTL_MILLIS);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("https://example.com/hot", cache.get("hot"));
+        }
+
+        long gap = cache.getRedisReadGapMillis("hot");
+        assertTrue(gap >= LOCAL_TTL_MILLIS && gap < LOCAL_TTL_MILLIS + 1000, "gap " + gap);
+        assertEquals(-1, cache.getRedisReadGapMillis("cold"));
+        assertEquals(-1, cache.getRedisReadGapMillis("unknown"));
+    }
+
+    /**
+     * Walk one Redis TTL of a mapping read every readGap milliseconds
+     * (or once a local TTL if unknown); whether any read refreshed it
+     */
+    private boolean refreshedBeforeExpiry(long readGap) {
+        long step = readGap > 0 ? readGap : LOCAL_TTL_MILLIS;
+        long remaining = REDIS_TTL_MILLIS - ThreadLocalRandom.current().nextLong(step);
+        for (; remaining > 0; remaining -= step) {
+            if (policy.shouldRefresh(remaining, readGap)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,131 @@
+package org.stir.shrinkurl.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 50;
+
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker("test", 0.5, 4, 60_000, OPEN_MILLIS, 2);
+    }
+
+    @Test
+    void testRecordFailure_OpensAtFailureRateThreshold() {
+        breaker.recordSuccess();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1L, breaker.getStats().get("times_opened"));
+        assertEquals(1L, breaker.getStats().get("short_circuited"));
+    }
+
+    @Test
+    void testRecordFailure_StaysClosedBelowMinimumCalls() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void testRecordFailure_StaysClosedBelowFailureRate() {
+        for (int i = 0; i < 10; i++) {
+            breaker.recordSuccess();
+            breaker.recordSuccess();
+            breaker.recordFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testAllowRequest_HalfOpenAfterOpenDuration() throws InterruptedException {
+        open();
+
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest(), "only the configured number of probes may go through");
+    }
+
+    @Test
+    void testRecordSuccess_ClosesAfterAllProbesSucceed() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_MILLIS + 20);
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.recordSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertEquals(0L, breaker.getStats().get("window_calls"));
+    }
+
+    @Test
+    void testRecordFailure_ProbeFailureReopens() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_MILLIS + 20);
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(2L, breaker.getStats().get("times_opened"));
+    }
+
+    @Test
+    void testAllowRequest_UnreportedProbesAreGivenUp() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_MILLIS + 20);
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+
+        // Neither probe reports back; another open duration later new probes are allowed
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void testRecordFailure_WindowResetForgetsOldFailures() throws InterruptedException {
+        CircuitBreaker shortWindow = new CircuitBreaker("test", 0.5, 4, 50, OPEN_MILLIS, 1);
+        shortWindow.recordFailure();
+        shortWindow.recordFailure();
+        shortWindow.recordFailure();
+
+        Thread.sleep(70);
+        shortWindow.recordFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, shortWindow.getState());
+        assertEquals(1L, shortWindow.getStats().get("window_calls"));
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            breaker.recordFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,112 @@
+package org.stir.shrinkurl.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalableBloomFilterTest {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void testMightContain_NoFalseNegativesAcrossGrowth() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, FALSE_POSITIVE_RATE);
+        int total = 100_000;
+
+        for (int i = 0; i < total; i++) {
+            filter.add(code(i));
+            if (i % 10_000 == 0) {
+                // Elements from earlier segments must still be found after each growth step
+                for (int j = 0; j <= i; j += 97) {
+                    assertTrue(filter.mightContain(code(j)), "lost " + code(j) + " after " + i + " adds");
+                }
+            }
+        }
+
+        assertTrue(filter.getSegmentCount() > 1, "filter never grew");
+        for (int i = 0; i < total; i++) {
+            assertTrue(filter.mightContain(code(i)), "false negative for " + code(i));
+        }
+    }
+
+    @Test
+    void testMightContain_FalsePositiveRateStaysBoundedAfterGrowth() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < 50_000; i++) {
+            filter.add(code(i));
+        }
+
+        int probes = 100_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("unknown-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // The design bound is twice the initial rate; leave some room for sampling noise
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < FALSE_POSITIVE_RATE * 2.5, "false positive rate " + rate);
+    }
+
+    @Test
+    void testAdd_ReAddingKnownElementDoesNotGrow() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(10, FALSE_POSITIVE_RATE);
+
+        assertTrue(filter.add("abc123"));
+        for (int i = 0; i < 100; i++) {
+            assertFalse(filter.add("abc123"));
+        }
+
+        assertEquals(1, filter.getApproximateCount());
+        assertEquals(1, filter.getSegmentCount());
+    }
+
+    @Test
+    void testAdd_ConcurrentAddsHaveNoFalseNegatives() throws Exception {
+        ScalableBloomFilter filter = new ScalableBloomFilter(500, FALSE_POSITIVE_RATE);
+        int threads = 8;
+        int perThread = 10_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * perThread;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        filter.add(code(offset + i));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < threads * perThread; i++) {
+            assertTrue(filter.mightContain(code(i)), "false negative for " + code(i));
+        }
+    }
+
+    @Test
+    void testMightContain_EmptyFilterContainsNothing() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, FALSE_POSITIVE_RATE);
+
+        assertFalse(filter.mightContain("abc123"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    private static String code(int i) {
+        return Integer.toString(i, 36);
+    }
+}
@@ -0,0 +1,131 @@
+package org.stir.shrinkurl.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testExecute_ConcurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("abc123", () -> {
+                loads.incrementAndGet();
+                awaitOtherCallers();
+                return "https://example.com";
+            })));
+        }
+
+        for (Future<String> result : results) {
+            assertEquals("https://example.com", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, singleFlight.getExecutionCount());
+        assertEquals(CALLERS - 1, singleFlight.getCoalescedCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    void testExecute_ExceptionReachesEveryWaiter() throws Exception {
+        IllegalStateException failure = new IllegalStateException("database down");
+
+        List<Future<Throwable>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> {
+                try {
+                    singleFlight.execute("abc123", () -> {
+                        awaitOtherCallers();
+                        throw failure;
+                    });
+                    return null;
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            }));
+        }
+
+        for (Future<Throwable> result : results) {
+            assertSame(failure, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, singleFlight.getExecutionCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    void testExecute_KeyIsReleasedAfterLoad() {
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.execute("abc123", () -> "v" + loads.incrementAndGet());
+        String second = singleFlight.execute("abc123", () -> "v" + loads.incrementAndGet());
+
+        assertEquals("v2", second);
+        assertEquals(2, singleFlight.getExecutionCount());
+        assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    void testExecute_KeyIsReleasedAfterFailure() {
+        assertThrows(IllegalStateException.class,
+            () -> singleFlight.execute("abc123", () -> { throw new IllegalStateException("boom"); }));
+
+        assertEquals("ok", singleFlight.execute("abc123", () -> "ok"));
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    void testExecute_DifferentKeysLoadIndependently() throws Exception {
+        Future<String> first = executor.submit(() -> singleFlight.execute("aaa111", () -> {
+            sleep(100);
+            return "first";
+        }));
+        Future<String> second = executor.submit(() -> singleFlight.execute("bbb222", () -> "second"));
+
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals(2, singleFlight.getExecutionCount());
+        assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    /**
+     * Keep the load running until every other caller has joined it
+     */
+    private void awaitOtherCallers() {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlight.getCoalescedCount() < CALLERS - 1) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("only " + singleFlight.getCoalescedCount() + " callers joined the load");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.stir.shrinkurl.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UrlMappingCodecTest {
+
+    private static final long DEADLINE = 1_900_000_000L;
+
+    @Test
+    void testEncode_RoundTripsEveryDictionaryPrefix() {
+        for (int i = 1; i < UrlMappingCodec.PREFIXES.size(); i++) {
+            String url = UrlMappingCodec.PREFIXES.get(i) + "some/path?q=" + i;
+
+            byte[] value = UrlMappingCodec.encode(url, 0);
+            assertEquals(i, value[1] & 0xFF, "wrong prefix chosen for " + url);
+
+            UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(value);
+            assertNotNull(decoded, url);
+            assertEquals(url, decoded.getOriginalUrl());
+            assertFalse(decoded.isNotFound());
+        }
+    }
+
+    @Test
+    void testEncode_UsesLongestMatchingPrefix() {
+        String url = "https://www.youtube.com/watch?v=dQw4w9WgXcQ";
+
+        byte[] value = UrlMappingCodec.encode(url, DEADLINE);
+
+        assertEquals(UrlMappingCodec.PREFIXES.indexOf("https://www.youtube.com/watch?v="), value[5] & 0xFF);
+        assertEquals(url, UrlMappingCodec.decode(value).getOriginalUrl());
+    }
+
+    @Test
+    void testEncode_RoundTripsUrlWithoutPrefix() {
+        String url = "ftp://files.example.org/pub/r\u00e9sum\u00e9.pdf";
+
+        byte[] value = UrlMappingCodec.encode(url, DEADLINE);
+        assertEquals(0, value[5]);
+
+        UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(value);
+        assertEquals(url, decoded.getOriginalUrl());
+        assertEquals(DEADLINE, decoded.getDeadlineEpochSeconds());
+    }
+
+    @Test
+    void testEncode_RoundTripsDeadline() {
+        UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(UrlMappingCodec.encode("https://example.com/", DEADLINE));
+
+        assertEquals("https://example.com/", decoded.getOriginalUrl());
+        assertEquals(DEADLINE, decoded.getDeadlineEpochSeconds());
+    }
+
+    @Test
+    void testEncode_ExpiredDeadlineIsKeptForTheReaderToCheck() {
+        long past = 1_000_000_000L;
+
+        UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(UrlMappingCodec.encode("https://example.com/old", past));
+
+        assertEquals("https://example.com/old", decoded.getOriginalUrl());
+        assertEquals(past, decoded.getDeadlineEpochSeconds());
+    }
+
+    @Test
+    void testEncode_DeadlineBeyond32BitsIsClamped() {
+        UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(UrlMappingCodec.encode("https://example.com/", 1L << 40));
+
+        assertEquals(0xFFFFFFFFL, decoded.getDeadlineEpochSeconds());
+    }
+
+    @Test
+    void testEncode_NoDeadlineOmitsDeadlineBytes() {
+        byte[] value = UrlMappingCodec.encode("https://example.com/", 0);
+
+        assertEquals(1 + 1 + "example.com/".length(), value.length);
+        UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(value);
+        assertEquals("https://example.com/", decoded.getOriginalUrl());
+        assertEquals(-1, decoded.getDeadlineEpochSeconds());
+    }
+
+    @Test
+    void testEncodeNotFound_RoundTripsTombstone() {
+        UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(UrlMappingCodec.encodeNotFound(DEADLINE));
+
+        assertTrue(decoded.isNotFound());
+        assertNull(decoded.getOriginalUrl());
+        assertEquals(DEADLINE, decoded.getDeadlineEpochSeconds());
+    }
+
+    @Test
+    void testDecode_LegacyPlainUrl() {
+        String url = "https://example.com/legacy?a=1";
+
+        UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(url.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(url, decoded.getOriginalUrl());
+        assertEquals(-1, decoded.getDeadlineEpochSeconds());
+    }
+
+    @Test
+    void testDecode_LegacyEmptyTombstone() {
+        UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(new byte[0]);
+
+        assertTrue(decoded.isNotFound());
+        assertEquals(-1, decoded.getDeadlineEpochSeconds());
+    }
+
+    @Test
+    void testDecode_LegacyValueStartingWithControlByteIsNeverMisread() {
+        // Null is read as a cache miss and reloaded; anything else must be the original value
+        String[] tails = {"https://example.com/page", "x", ""};
+        for (int b = 0; b < 0x20; b++) {
+            for (String tail : tails) {
+                String legacy = (char) b + tail;
+                UrlMappingCodec.Decoded decoded = UrlMappingCodec.decode(legacy.getBytes(StandardCharsets.UTF_8));
+                if (decoded != null) {
+                    assertEquals(legacy, decoded.getOriginalUrl(), "misread legacy value with leading byte " + b);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testDecode_TruncatedRecordIsUnreadable() {
+        byte[] value = UrlMappingCodec.encode("https://example.com/", DEADLINE);
+
+        assertNull(UrlMappingCodec.decode(new byte[] {value[0], value[1], value[2]}));
+        assertNull(UrlMappingCodec.decode(new byte[] {value[0], value[1], value[2], value[3], value[4]}));
+    }
+
+    @Test
+    void testDecode_UnknownPrefixIndexIsUnreadable() {
+        byte[] value = UrlMappingCodec.encode("https://example.com/", 0);
+        value[1] = (byte) UrlMappingCodec.PREFIXES.size();
+
+        assertNull(UrlMappingCodec.decode(value));
+    }
+
+    @Test
+    void testDecode_Null() {
+        assertNull(UrlMappingCodec.decode(null));
+    }
+}
@@ -0,0 +1,35 @@
+package org.stir.shrinkurl.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Needs the same environment as ShrinkurlApplicationTests (full context).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testDebugRecache_RejectsAnonymousPost() throws Exception {
+        assertDenied(mockMvc.perform(post("/api/debug/redis/recache")).andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void testDebugMappingMemory_RejectsAnonymousPost() throws Exception {
+        assertDenied(mockMvc.perform(post("/api/debug/redis/mapping-memory")).andReturn().getResponse().getStatus());
+    }
+
+    private static void assertDenied(int status) {
+        assertTrue(status == 401 || status == 403, "status " + status);
+    }
+}
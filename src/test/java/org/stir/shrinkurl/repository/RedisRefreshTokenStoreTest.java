@@ -0,0 +1,110 @@
+package org.stir.shrinkurl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.stir.shrinkurl.LocalRedisSupport;
+import org.stir.shrinkurl.entity.RefreshToken;
+import org.stir.shrinkurl.utils.JwtUtil;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a local Redis ({@link LocalRedisSupport}); skipped when no
+ * server is reachable.
+ */
+public class RedisRefreshTokenStoreTest {
+
+    private static final long USER_ID = 424242L;
+
+    private LocalRedisSupport redis;
+    private RedisTemplate<String, Object> template;
+    private RedisRefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        redis = LocalRedisSupport.connectOrSkip();
+        template = redis.getTemplate();
+
+        store = new RedisRefreshTokenStore();
+        ReflectionTestUtils.setField(store, "redisTemplate", template);
+        store.deleteByUserId(USER_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.deleteByUserId(USER_ID);
+        }
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Test
+    void testSave_RoundTripsWithNativeTtl() {
+        RefreshToken saved = store.save(newToken("user|with-pipe@example.com", 60_000));
+
+        Optional<RefreshToken> found = store.findByToken(saved.getToken());
+        assertTrue(found.isPresent());
+        assertEquals(USER_ID, found.get().getUserId());
+        assertEquals("user|with-pipe@example.com", found.get().getEmail());
+        assertEquals(saved.getExpiryDate(), found.get().getExpiryDate());
+        assertEquals(saved.getCreatedAt(), found.get().getCreatedAt());
+
+        Long ttl = template.getExpire(RedisRefreshTokenStore.TOKEN_PREFIX + JwtUtil.digestHex(saved.getToken()));
+        assertTrue(ttl != null && ttl > 0 && ttl <= 60);
+        assertFalse(template.hasKey(RedisRefreshTokenStore.TOKEN_PREFIX + saved.getToken()));
+    }
+
+    @Test
+    void testFindByToken_ExpiresWithoutCleanup() throws Exception {
+        RefreshToken saved = store.save(newToken("user@example.com", 1_000));
+        assertTrue(store.findByToken(saved.getToken()).isPresent());
+
+        Thread.sleep(1_500);
+        assertTrue(store.findByToken(saved.getToken()).isEmpty());
+    }
+
+    @Test
+    void testDeleteByUserId_RemovesAllTokensOfUser() {
+        RefreshToken first = store.save(newToken("user@example.com", 60_000));
+        RefreshToken second = store.save(newToken("user@example.com", 60_000));
+
+        store.deleteByUserId(USER_ID);
+
+        assertTrue(store.findByToken(first.getToken()).isEmpty());
+        assertTrue(store.findByToken(second.getToken()).isEmpty());
+        assertFalse(template.hasKey(RedisRefreshTokenStore.USER_PREFIX + USER_ID));
+    }
+
+    @Test
+    void testDeleteByToken_RemovesTokenFromUserIndex() {
+        RefreshToken kept = store.save(newToken("user@example.com", 60_000));
+        RefreshToken deleted = store.save(newToken("user@example.com", 60_000));
+
+        store.deleteByToken(deleted.getToken());
+
+        assertTrue(store.findByToken(deleted.getToken()).isEmpty());
+        assertTrue(store.findByToken(kept.getToken()).isPresent());
+        assertFalse(template.opsForSet().isMember(RedisRefreshTokenStore.USER_PREFIX + USER_ID, JwtUtil.digestHex(deleted.getToken())));
+        assertTrue(template.opsForSet().isMember(RedisRefreshTokenStore.USER_PREFIX + USER_ID, JwtUtil.digestHex(kept.getToken())));
+    }
+
+    private RefreshToken newToken(String email, long validityMillis) {
+        Date now = new Date();
+        return RefreshToken.builder()
+            .token(UUID.randomUUID().toString())
+            .userId(USER_ID)
+            .email(email)
+            .expiryDate(new Date(now.getTime() + validityMillis))
+            .createdAt(now)
+            .build();
+    }
+}
@@ -0,0 +1,175 @@
+package org.stir.shrinkurl.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.stir.shrinkurl.annotation.RateLimit;
+import org.stir.shrinkurl.enums.RateLimitAlgorithm;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LocalRateLimiterTest {
+
+    @Mock
+    private RateLimitService rateLimitService;
+
+    @InjectMocks
+    private LocalRateLimiter localRateLimiter;
+
+    private final AtomicInteger globalCount = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(localRateLimiter, "requestsPerMinute", 100);
+        ReflectionTestUtils.setField(localRateLimiter, "requestsPerHour", 1000);
+        ReflectionTestUtils.setField(localRateLimiter, "maxClients", 1000);
+        ReflectionTestUtils.setField(localRateLimiter, "syncIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(localRateLimiter, "syncBatch", 10);
+        ReflectionTestUtils.setField(localRateLimiter, "nearThreshold", 0.8);
+        localRateLimiter.init();
+
+        // Behave like the multi-window script against a single shared counter
+        when(rateLimitService.checkWindows(anyList(), anyInt(), anyBoolean())).thenAnswer(invocation -> {
+            List<RateLimitService.WindowLimit> windows = invocation.getArgument(0);
+            int admitted = invocation.getArgument(1);
+            boolean check = invocation.getArgument(2);
+            int minuteLimit = windows.get(0).getLimit();
+
+            boolean allowed = !check || globalCount.get() + admitted + 1 <= minuteLimit;
+            int count = globalCount.addAndGet(admitted + (check && allowed ? 1 : 0));
+            long reset = Instant.now().getEpochSecond() + 60;
+            return new RateLimitService.MultiWindowStatus(allowed, Arrays.asList(
+                new RateLimitService.RateLimitStatus(count <= minuteLimit, count, minuteLimit, Math.max(0, minuteLimit - count), reset),
+                new RateLimitService.RateLimitStatus(true, count, 1000, 1000 - count, reset + 3540)
+            ));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        localRateLimiter.shutdown();
+    }
+
+    @Test
+    void testTryAcquire_BatchesRedisSyncs() {
+        for (int i = 0; i < 50; i++) {
+            assertNull(localRateLimiter.tryAcquire("10.0.0.1"));
+        }
+
+        // 50 requests, one sync per batch of 10
+        verify(rateLimitService, times(5)).checkWindows(anyList(), eq(10), eq(false));
+        assertEquals(50, globalCount.get());
+    }
+
+    @Test
+    void testTryAcquire_EnforcesExactLimitNearThreshold() {
+        int allowed = 0;
+        for (int i = 0; i < 150; i++) {
+            if (localRateLimiter.tryAcquire("10.0.0.2") == null) {
+                allowed++;
+            }
+        }
+
+        assertEquals(100, allowed);
+        assertEquals(100, globalCount.get());
+    }
+
+    @Test
+    void testTryAcquire_WithEndpointLimitUsesOneCallPerRequest() {
+        RateLimit endpointLimit = mock(RateLimit.class);
+        when(endpointLimit.algorithm()).thenReturn(RateLimitAlgorithm.FIXED_WINDOW);
+        when(rateLimitService.checkRequest(anyList(), anyInt(), anyBoolean(), anyString(), any())).thenAnswer(invocation -> {
+            int admitted = invocation.getArgument(1);
+            int count = globalCount.addAndGet(admitted);
+            long reset = Instant.now().getEpochSecond() + 60;
+            RateLimitService.RateLimitStatus endpoint = new RateLimitService.RateLimitStatus(true, 1, 10, 9, reset);
+            return new RateLimitService.RequestLimitStatus(true, Arrays.asList(
+                new RateLimitService.RateLimitStatus(true, count, 100, 100 - count, reset),
+                new RateLimitService.RateLimitStatus(true, count, 1000, 1000 - count, reset + 3540)
+            ), endpoint);
+        });
+
+        for (int i = 0; i < 5; i++) {
+            LocalRateLimiter.Decision decision = localRateLimiter.tryAcquire("10.0.0.3", "ip:10.0.0.3", endpointLimit);
+            assertNull(decision.getRejection());
+            assertNotNull(decision.getEndpointStatus());
+        }
+
+        // Each request carries itself as the global delta; no separate sync call
+        verify(rateLimitService, times(5)).checkRequest(anyList(), eq(1), eq(false), eq("ip:10.0.0.3"), eq(endpointLimit));
+        verify(rateLimitService, never()).checkWindows(anyList(), anyInt(), anyBoolean());
+        assertEquals(5, globalCount.get());
+    }
+
+    @Test
+    void testSyncIdleClients_PushesCountOfClientThatStoppedSending() {
+        // Too few requests to fill a batch, and the client goes quiet within its sync interval
+        ReflectionTestUtils.setField(localRateLimiter, "syncBatch", 1000);
+        for (int i = 0; i < 3; i++) {
+            assertNull(localRateLimiter.tryAcquire("10.0.0.4"));
+        }
+        assertEquals(0, globalCount.get());
+
+        ReflectionTestUtils.setField(localRateLimiter, "syncIntervalMs", 0L);
+        localRateLimiter.syncIdleClients();
+
+        verify(rateLimitService).checkWindows(anyList(), eq(3), eq(false));
+        assertEquals(3, globalCount.get());
+        assertEquals(1L, localRateLimiter.getStats().get("background_syncs"));
+
+        // Nothing left to push
+        localRateLimiter.syncIdleClients();
+        verify(rateLimitService, times(1)).checkWindows(anyList(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    void testTryAcquire_RedisCallDoesNotBlockClientsOtherRequests() throws Exception {
+        ReflectionTestUtils.setField(localRateLimiter, "syncBatch", 1);
+        CountDownLatch inRedis = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(rateLimitService.checkWindows(anyList(), anyInt(), anyBoolean())).thenAnswer(invocation -> {
+            int admitted = invocation.getArgument(1);
+            inRedis.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            int count = globalCount.addAndGet(admitted);
+            long reset = Instant.now().getEpochSecond() + 60;
+            return new RateLimitService.MultiWindowStatus(true, Arrays.asList(
+                new RateLimitService.RateLimitStatus(true, count, 100, 100 - count, reset),
+                new RateLimitService.RateLimitStatus(true, count, 1000, 1000 - count, reset + 3540)
+            ));
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> syncing = executor.submit(() -> localRateLimiter.tryAcquire("10.0.0.5"));
+            assertTrue(inRedis.await(5, TimeUnit.SECONDS));
+
+            // Decided from memory while the first request's sync is still in Redis
+            assertNull(localRateLimiter.tryAcquire("10.0.0.5"));
+
+            release.countDown();
+            assertNull(syncing.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        verify(rateLimitService, times(1)).checkWindows(anyList(), anyInt(), anyBoolean());
+    }
+}
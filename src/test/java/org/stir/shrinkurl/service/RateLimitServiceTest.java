@@ -0,0 +1,107 @@
+package org.stir.shrinkurl.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.stir.shrinkurl.LocalRedisSupport;
+import org.stir.shrinkurl.cache.CircuitBreaker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a local Redis ({@link LocalRedisSupport}); skipped when no
+ * server is reachable.
+ */
+public class RateLimitServiceTest {
+
+    private static final String TEST_KEY = "test:concurrency";
+
+    private LocalRedisSupport redis;
+    private RedisTemplate<String, Object> template;
+    private RateLimitService rateLimitService;
+
+    @BeforeEach
+    void setUp() {
+        redis = LocalRedisSupport.connectOrSkip();
+        template = redis.getTemplate();
+
+        rateLimitService = new RateLimitService();
+        ReflectionTestUtils.setField(rateLimitService, "rateLimitRedisTemplate", template);
+        ReflectionTestUtils.setField(rateLimitService, "rateLimitCircuitBreaker",
+            new CircuitBreaker("test", 0.5, 20, 10_000, 5_000, 3));
+        rateLimitService.resetRateLimit(TEST_KEY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (rateLimitService != null) {
+            rateLimitService.resetRateLimit(TEST_KEY);
+        }
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @Test
+    void testCheckRateLimit_ReturnsCountAndTtlInOneCall() {
+        RateLimitService.RateLimitStatus first = rateLimitService.checkRateLimit(TEST_KEY, 2, 60);
+        RateLimitService.RateLimitStatus second = rateLimitService.checkRateLimit(TEST_KEY, 2, 60);
+        RateLimitService.RateLimitStatus third = rateLimitService.checkRateLimit(TEST_KEY, 2, 60);
+
+        assertTrue(first.isAllowed());
+        assertEquals(1, first.getCurrentCount());
+        assertEquals(1, first.getRemaining());
+
+        assertTrue(second.isAllowed());
+        assertEquals(0, second.getRemaining());
+
+        assertFalse(third.isAllowed());
+        assertEquals(2, third.getCurrentCount());
+        assertTrue(third.getResetTime() > System.currentTimeMillis() / 1000);
+    }
+
+    @Test
+    void testIsAllowed_EnforcesExactLimitUnderParallelLoad() throws Exception {
+        int limit = 100;
+        int threads = 32;
+        int requestsPerThread = 25;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < requestsPerThread; i++) {
+                    if (rateLimitService.isAllowed(TEST_KEY, limit, 60)) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 800 concurrent attempts, exactly `limit` admitted and no lost increments
+        assertEquals(limit, allowed.get());
+        assertEquals(String.valueOf(limit), template.opsForValue().get("rate_limit:" + TEST_KEY));
+    }
+}
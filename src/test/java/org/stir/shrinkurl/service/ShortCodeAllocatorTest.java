@@ -0,0 +1,94 @@
+package org.stir.shrinkurl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.stir.shrinkurl.entity.ShortCodeSequence;
+import org.stir.shrinkurl.repository.ShortCodeSequenceRepository;
+import org.stir.shrinkurl.repository.UrlRepository;
+import org.stir.shrinkurl.utils.UrlShortenerUtil;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ShortCodeAllocatorTest {
+
+    @Mock
+    private ShortCodeSequenceRepository sequenceRepository;
+
+    @Mock
+    private UrlRepository urlRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ShortCodeAllocator shortCodeAllocator;
+
+    private final UrlShortenerUtil urlShortenerUtil = new UrlShortenerUtil();
+
+    private final ShortCodeSequence sequence = new ShortCodeSequence(ShortCodeAllocator.SEQUENCE_NAME, 0L);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(shortCodeAllocator, "urlShortenerUtil", urlShortenerUtil);
+        ReflectionTestUtils.setField(shortCodeAllocator, "blockSize", 1000);
+        ReflectionTestUtils.setField(shortCodeAllocator, "scramble", true);
+        ReflectionTestUtils.setField(shortCodeAllocator, "scrambleKey", 42L);
+        shortCodeAllocator.init();
+
+        when(sequenceRepository.findByNameForUpdate(ShortCodeAllocator.SEQUENCE_NAME)).thenReturn(Optional.of(sequence));
+    }
+
+    @Test
+    void testNextShortCode_UniqueCodesFromLeasedBlocks() {
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 2500; i++) {
+            String code = shortCodeAllocator.nextShortCode();
+            assertEquals(UrlShortenerUtil.SEQUENCE_CODE_LENGTH, code.length());
+            assertTrue(urlShortenerUtil.isValidCustomCode(code));
+            codes.add(code);
+        }
+
+        assertEquals(2500, codes.size());
+        // One database round trip per block, not per code
+        verify(sequenceRepository, times(3)).findByNameForUpdate(ShortCodeAllocator.SEQUENCE_NAME);
+        assertEquals(3000L, sequence.getNextValue());
+    }
+
+    @Test
+    void testNextShortCode_SkipsCodesAlreadyInUse() {
+        // A custom alias created before 7-character aliases were refused
+        String legacyAlias = urlShortenerUtil.encodeSequence(urlShortenerUtil.scramble(1L, 42L));
+        when(urlRepository.findIdsByShortCodes(anyCollection()))
+            .thenReturn(Collections.singletonList(new Object[] {legacyAlias, 99L}));
+
+        assertEquals(urlShortenerUtil.encodeSequence(urlShortenerUtil.scramble(0L, 42L)), shortCodeAllocator.nextShortCode());
+        assertEquals(urlShortenerUtil.encodeSequence(urlShortenerUtil.scramble(2L, 42L)), shortCodeAllocator.nextShortCode());
+        assertEquals(1L, shortCodeAllocator.getStats().get("skipped_existing"));
+        // Looked up once for the whole block
+        verify(urlRepository, times(1)).findIdsByShortCodes(anyCollection());
+    }
+
+    @Test
+    void testScramble_IsBijectiveWithinCodeSpace() {
+        long[] samples = {0L, 1L, 2L, 999L, 123_456_789L, UrlShortenerUtil.SEQUENCE_SPACE - 1};
+        for (long value : samples) {
+            long scrambled = urlShortenerUtil.scramble(value, 42L);
+            assertTrue(scrambled >= 0 && scrambled < UrlShortenerUtil.SEQUENCE_SPACE);
+            assertEquals(value, urlShortenerUtil.unscramble(scrambled, 42L));
+        }
+        assertNotEquals(urlShortenerUtil.scramble(1L, 42L) + 1, urlShortenerUtil.scramble(2L, 42L));
+    }
+}
@@ -30,6 +30,9 @@ public class SubscriptionServiceTest {
     @Mock
     private UrlAnalyticsRepository urlAnalyticsRepository;
     
+    @Mock
+    private UserSnapshotCache userSnapshotCache;
+    
     @InjectMocks
     private SubscriptionService subscriptionService;
     
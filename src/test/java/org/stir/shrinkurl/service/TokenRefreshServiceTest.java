@@ -0,0 +1,180 @@
+package org.stir.shrinkurl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.stir.shrinkurl.dto.TokenPair;
+import org.stir.shrinkurl.entity.User;
+import org.stir.shrinkurl.utils.JwtUtil;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TokenRefreshServiceTest {
+
+    private static final String OLD_REFRESH_TOKEN = "old-refresh-token";
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    @InjectMocks
+    private TokenRefreshService tokenRefreshService;
+
+    private final User user = User.builder().id(7L).email("user@example.com").name("Test User").build();
+
+    private final TokenPair rotatedTokens = new TokenPair("new-access-token", "new-refresh-token");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(tokenRefreshService, "reuseWindowSeconds", 10L);
+        ReflectionTestUtils.setField(tokenRefreshService, "reuseCacheSize", 100);
+        ReflectionTestUtils.setField(tokenRefreshService, "sharedRotation", false);
+        ReflectionTestUtils.setField(tokenRefreshService, "sharedWaitMs", 500L);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        tokenRefreshService.init();
+    }
+
+    @Test
+    void testRefresh_ConcurrentRefreshesShareOneRotation() throws Exception {
+        // Slow lookup so every thread arrives while the first rotation is still running
+        when(refreshTokenService.getUserFromRefreshToken(OLD_REFRESH_TOKEN)).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return Optional.of(user);
+        });
+        when(jwtUtil.generateTokens(user)).thenReturn(rotatedTokens);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<TokenPair>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return tokenRefreshService.refresh(OLD_REFRESH_TOKEN);
+                }));
+            }
+            start.countDown();
+
+            for (Future<Optional<TokenPair>> result : results) {
+                assertEquals(Optional.of(rotatedTokens), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // One lookup and one delete + insert of the refresh token for all requests
+        verify(refreshTokenService, times(1)).getUserFromRefreshToken(OLD_REFRESH_TOKEN);
+        verify(jwtUtil, times(1)).generateTokens(user);
+    }
+
+    @Test
+    void testRefresh_LateRequestWithOldTokenReusesRotatedPair() {
+        when(refreshTokenService.getUserFromRefreshToken(OLD_REFRESH_TOKEN)).thenReturn(Optional.of(user));
+        when(jwtUtil.generateTokens(user)).thenReturn(rotatedTokens);
+
+        assertEquals(Optional.of(rotatedTokens), tokenRefreshService.refresh(OLD_REFRESH_TOKEN));
+        // The old token is deleted by now; within the reuse window it still maps to the new pair
+        when(refreshTokenService.getUserFromRefreshToken(OLD_REFRESH_TOKEN)).thenReturn(Optional.empty());
+        assertEquals(Optional.of(rotatedTokens), tokenRefreshService.refresh(OLD_REFRESH_TOKEN));
+
+        verify(jwtUtil, times(1)).generateTokens(user);
+        assertEquals(1L, tokenRefreshService.getStats().get("reused"));
+    }
+
+    @Test
+    void testRefresh_ReuseWindowExpires() {
+        ReflectionTestUtils.setField(tokenRefreshService, "reuseWindowSeconds", 0L);
+        when(refreshTokenService.getUserFromRefreshToken(OLD_REFRESH_TOKEN))
+            .thenReturn(Optional.of(user))
+            .thenReturn(Optional.empty());
+        when(jwtUtil.generateTokens(user)).thenReturn(rotatedTokens);
+
+        assertTrue(tokenRefreshService.refresh(OLD_REFRESH_TOKEN).isPresent());
+        assertTrue(tokenRefreshService.refresh(OLD_REFRESH_TOKEN).isEmpty());
+    }
+
+    @Test
+    void testRefresh_InvalidTokenIsNotRotated() {
+        when(refreshTokenService.getUserFromRefreshToken("unknown")).thenReturn(Optional.empty());
+
+        assertTrue(tokenRefreshService.refresh("unknown").isEmpty());
+        verify(jwtUtil, never()).generateTokens(any());
+        assertEquals(1L, tokenRefreshService.getStats().get("rejected"));
+    }
+
+    @Test
+    void testRefresh_ReusesPairRotatedOnAnotherNode() throws Exception {
+        ReflectionTestUtils.setField(tokenRefreshService, "sharedRotation", true);
+        // Another node claimed the rotation and published the new pair
+        when(valueOperations.setIfAbsent(startsWith(TokenRefreshService.ROTATION_PREFIX), eq("pending"), any(Duration.class)))
+            .thenReturn(false);
+        when(valueOperations.get(startsWith(TokenRefreshService.ROTATION_PREFIX)))
+            .thenReturn("pending")
+            .thenReturn(TokenRefreshService.seal(rotatedTokens, OLD_REFRESH_TOKEN));
+
+        assertEquals(Optional.of(rotatedTokens), tokenRefreshService.refresh(OLD_REFRESH_TOKEN));
+        verify(refreshTokenService, never()).getUserFromRefreshToken(any());
+        verify(jwtUtil, never()).generateTokens(any());
+        assertEquals(1L, tokenRefreshService.getStats().get("shared_reused"));
+    }
+
+    @Test
+    void testRefresh_PairSealedForAnotherTokenIsNotReused() throws Exception {
+        ReflectionTestUtils.setField(tokenRefreshService, "sharedRotation", true);
+        when(valueOperations.setIfAbsent(startsWith(TokenRefreshService.ROTATION_PREFIX), eq("pending"), any(Duration.class)))
+            .thenReturn(false);
+        when(valueOperations.get(startsWith(TokenRefreshService.ROTATION_PREFIX)))
+            .thenReturn(TokenRefreshService.seal(rotatedTokens, "some-other-token"));
+        when(refreshTokenService.getUserFromRefreshToken(OLD_REFRESH_TOKEN)).thenReturn(Optional.empty());
+
+        // Cannot be opened with this token, so the node checks the token itself
+        assertTrue(tokenRefreshService.refresh(OLD_REFRESH_TOKEN).isEmpty());
+        verify(refreshTokenService).getUserFromRefreshToken(OLD_REFRESH_TOKEN);
+        assertEquals(0L, tokenRefreshService.getStats().get("shared_reused"));
+    }
+
+    @Test
+    void testRefresh_ClaimedRotationIsPublished() throws Exception {
+        ReflectionTestUtils.setField(tokenRefreshService, "sharedRotation", true);
+        when(valueOperations.setIfAbsent(startsWith(TokenRefreshService.ROTATION_PREFIX), eq("pending"), any(Duration.class)))
+            .thenReturn(true);
+        when(refreshTokenService.getUserFromRefreshToken(OLD_REFRESH_TOKEN)).thenReturn(Optional.of(user));
+        when(jwtUtil.generateTokens(user)).thenReturn(rotatedTokens);
+
+        assertEquals(Optional.of(rotatedTokens), tokenRefreshService.refresh(OLD_REFRESH_TOKEN));
+        // Keyed by the token's digest, never the raw token, and the pair is only readable with the old token
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(valueOperations).set(argThat(key -> key.startsWith(TokenRefreshService.ROTATION_PREFIX) && !key.contains(OLD_REFRESH_TOKEN)),
+            published.capture(), eq(Duration.ofSeconds(10)));
+        String value = published.getValue().toString();
+        assertFalse(value.contains("new-access-token") || value.contains("new-refresh-token"));
+        assertEquals(rotatedTokens, TokenRefreshService.open(value, OLD_REFRESH_TOKEN));
+    }
+}
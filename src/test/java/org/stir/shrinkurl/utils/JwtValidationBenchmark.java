@@ -0,0 +1,99 @@
+package org.stir.shrinkurl.utils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+/**
+ * Cost of JwtUtil.validateToken with the verified-token cache off
+ * (cacheSize = 0: full Base64 decode, JSON parse and HMAC every call) and on.
+ * Each thread cycles through a pool of distinct tokens, like many browsers
+ * each resending their own access token.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *          -Dexec.mainClass=org.stir.shrinkurl.utils.JwtValidationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtValidationBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret";
+
+    // JMH sets parameters on the generated subclass, so they cannot be private
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    @Param({"1000"})
+    public int distinctTokens;
+
+    private JwtUtil jwtUtil;
+    private String[] tokens;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", cacheSize);
+        jwtUtil.init();
+
+        // Same claims JwtUtil.generateTokens puts in an access token
+        Algorithm algorithm = Algorithm.HMAC256(SECRET);
+        Date expiresAt = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        tokens = new String[distinctTokens];
+        for (int i = 0; i < distinctTokens; i++) {
+            tokens[i] = JWT.create()
+                .withSubject("user" + i + "@example.com")
+                .withIssuedAt(new Date())
+                .withExpiresAt(expiresAt)
+                .withClaim("userId", (long) i)
+                .withClaim("email", "user" + i + "@example.com")
+                .withClaim("name", "User " + i)
+                .withClaim("roles", List.of("USER"))
+                .sign(algorithm);
+        }
+    }
+
+    @Benchmark
+    public DecodedJWT validateToken(Cursor cursor) {
+        String token = tokens[cursor.next];
+        cursor.next = (cursor.next + 1) % tokens.length;
+        return jwtUtil.validateToken(token).orElseThrow();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(JwtValidationBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}